@@ -1,5 +1,8 @@
 package client;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 import domain.facade.LEITunes;
 import ui.UI;
 
@@ -12,10 +15,11 @@ public class GUIClient {
 	/**
 	 * The method for the start up of the system 
 	 */
-	public static void main (String [] args) {
-		LEITunes leiTunes = new LEITunes ();
+	public static void main (String [] args) throws IOException {
+		LEITunes leiTunes = new LEITunes (Paths.get("data"));
 		UI ui = new UI (leiTunes.getPlaylistController(), 
 						leiTunes.getMusicLibraryController());
 		ui.run ();
+		leiTunes.close ();
 	}
 }
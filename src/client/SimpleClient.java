@@ -1,5 +1,6 @@
 package client;
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 
@@ -21,9 +22,9 @@ public class SimpleClient {
 	private SimpleClient() {
 	}
 
-	public static void main (String [] args) throws InterruptedException {
+	public static void main (String [] args) throws InterruptedException, IOException {
 		
-		LEITunes tunes = new  LEITunes();
+		LEITunes tunes = new  LEITunes(Paths.get("data"));
 		
 		PlaylistListController plc = tunes.getPlaylistController();
 		MusicLibraryController slc = tunes.getMusicLibraryController();
@@ -52,6 +53,7 @@ public class SimpleClient {
 		playingSomeSongsInPlaylist(3, plc);
 		showState(plc, slc);	
 		
+		tunes.close();
 	}
 
 
@@ -66,20 +68,15 @@ public class SimpleClient {
 	 * Add songs to the Music Library 
 	 * 
 	 * @param slc the music library controller
+	 * 
+	 * @throws InterruptedException
 	 */
-	private static void addToLibraryTenSongs(MusicLibraryController slc) {
+	private static void addToLibraryTenSongs(MusicLibraryController slc) throws InterruptedException {
 		System.out.println("\n----------------------------------------------- ");		
 		System.out.println("           Adding songs to library                ");
 		System.out.println("-----------------------------------------------\n ");
 
-		File folder = new File("songs");
-		File[] listOfFiles = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".mp3"));
-
-		if (listOfFiles != null) {
-			for (File file : listOfFiles) {
-				slc.addSong(file.getPath());
-			}
-		}	
+		slc.importFolder(Paths.get("songs"), Runtime.getRuntime().availableProcessors());
 	}
 
 
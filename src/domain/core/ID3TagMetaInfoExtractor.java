@@ -0,0 +1,360 @@
+package domain.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.mpatric.mp3agic.ID3v1Genres;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A concrete class of IMetaInfoExtractor that reads the ID3 tags of a mp3
+ * file directly, without going through the audio frames. Only the ID3v2 tag
+ * at the start of the file and the 128 bytes of the ID3v1 tag at its end are
+ * read, so the time taken depends on the size of the tags and not of the file.
+ *
+ * The values of the ID3v2 tag are preferred, and the ones of the ID3v1
+ * tag are used for the fields that the ID3v2 tag does not have.
+ *
+ */
+public class ID3TagMetaInfoExtractor implements IMetaInfoExtractor {
+
+	private static final int HEADER_SIZE = 10;
+	private static final int ID3V1_SIZE = 128;
+	private static final Pattern NUMERIC_GENRE = Pattern.compile("\\((\\d+)\\)(.*)|(\\d+)");
+
+	private static final int TITLE = 0;
+	private static final int ARTIST = 1;
+	private static final int ALBUM = 2;
+	private static final int GENRE = 3;
+	private static final String[][] FRAME_IDS = {{"TT2", "TIT2"}, {"TP1", "TPE1"}, {"TAL", "TALB"}, {"TCO", "TCON"}};
+
+	private final String[] values = new String[FRAME_IDS.length];
+
+	/**
+	 * The constructor of the object, it reads the tags of the mp3 file of the song
+	 *
+	 * @param fileName the name of the mp3 file of the song
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	public ID3TagMetaInfoExtractor(String fileName) {
+
+		try(FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			readId3v2(channel);
+			readId3v1(channel);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read the tags of " + fileName, e);
+		}
+	}
+
+	/**
+	 * Returns the title of the song
+	 * @return the title of the song
+	 */
+	@Override
+	public String getTitle() {
+		return nullToUnknown(values[TITLE]);
+	}
+
+	/**
+	 * Returns the list of artists of the song
+	 * @return the list of artists of the song
+	 */
+	@Override
+	public List<String> getArtists() {
+		return Arrays.asList(nullToUnknown(values[ARTIST]).split("; "));
+	}
+
+	/**
+	 * Returns the genre description of the song
+	 * @return the genre description of the song
+	 */
+	@Override
+	public String getGenre() {
+		return nullToUnknown(genreDescription(values[GENRE]));
+	}
+
+	/**
+	 * Returns the album name of the song
+	 * @return the album name of the song
+	 */
+	@Override
+	public String getAlbum() {
+		return nullToUnknown(values[ALBUM]);
+	}
+
+	/**
+	 * Reads the text frames of the ID3v2 tag at the start of the file, if there is one
+	 *
+	 * @param channel the channel of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private void readId3v2(FileChannel channel) throws IOException {
+
+		ByteBuffer header = read(channel, 0, HEADER_SIZE);
+		if(header.remaining() < HEADER_SIZE || header.get(0) != 'I' || header.get(1) != 'D' || header.get(2) != '3')
+			return;
+
+		int version = header.get(3);
+		int flags = header.get(5) & 0xFF;
+		int size = syncSafe(header, 6);
+		if(version < 2 || version > 4 || size < 0)
+			return;
+
+		//the size comes from the file, so it cannot be trusted beyond its end
+		ByteBuffer tag = read(channel, HEADER_SIZE, (int) Math.min(size, Math.max(0, channel.size() - HEADER_SIZE)));
+		if(version < 4 && (flags & 0x80) != 0)
+			tag = resynchronise(tag);
+
+		if(version > 2 && (flags & 0x40) != 0 && tag.remaining() >= 4) {
+			int extendedSize = version == 3 ? tag.getInt(0) + 4 : syncSafe(tag, 0);
+			if(extendedSize < 0 || extendedSize > tag.remaining())
+				return;
+			tag.position(extendedSize);
+		}
+
+		int idLength = version == 2 ? 3 : 4;
+		int frameHeaderSize = version == 2 ? 6 : 10;
+
+		while(tag.remaining() >= frameHeaderSize && tag.get(tag.position()) != 0) {
+
+			byte[] idBytes = new byte[idLength];
+			tag.get(idBytes);
+			String id = new String(idBytes, StandardCharsets.ISO_8859_1);
+
+			int frameSize;
+			int frameFlags = 0;
+			if(version == 2)
+				frameSize = ((tag.get() & 0xFF) << 16) | ((tag.get() & 0xFF) << 8) | (tag.get() & 0xFF);
+			else {
+				frameSize = version == 3 ? tag.getInt() : syncSafe(tag, tag.position());
+				if(version == 4)
+					tag.position(tag.position() + 4);
+				frameFlags = tag.getShort() & 0xFFFF;
+			}
+
+			if(frameSize < 0 || frameSize > tag.remaining())
+				return;
+
+			ByteBuffer frame = tag.slice();
+			frame.limit(frameSize);
+			tag.position(tag.position() + frameSize);
+
+			int field = fieldOf(id, version);
+			if(field >= 0 && values[field] == null) {
+				frame = frameData(frame, version, frameFlags, (flags & 0x80) != 0);
+				if(frame != null)
+					values[field] = emptyToNull(decodeText(frame));
+			}
+		}
+	}
+
+	/**
+	 * Reads the ID3v1 tag at the end of the file, if there is one, for the
+	 * fields that are still missing
+	 *
+	 * @param channel the channel of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private void readId3v1(FileChannel channel) throws IOException {
+
+		long size = channel.size();
+		if(size < ID3V1_SIZE)
+			return;
+
+		ByteBuffer tag = read(channel, size - ID3V1_SIZE, ID3V1_SIZE);
+		if(tag.remaining() < ID3V1_SIZE || tag.get(0) != 'T' || tag.get(1) != 'A' || tag.get(2) != 'G')
+			return;
+
+		setIfMissing(TITLE, latin1(tag, 3, 30));
+		setIfMissing(ARTIST, latin1(tag, 33, 30));
+		setIfMissing(ALBUM, latin1(tag, 63, 30));
+
+		int genre = tag.get(127) & 0xFF;
+		if(genre < ID3v1Genres.GENRES.length)
+			setIfMissing(GENRE, ID3v1Genres.GENRES[genre]);
+	}
+
+	/**
+	 * Returns the data of a frame without the extra information given by
+	 * its flags, or null if the frame is compressed or encrypted
+	 */
+	private static ByteBuffer frameData(ByteBuffer frame, int version, int frameFlags, boolean tagUnsynchronised) {
+
+		if(version == 3) {
+			if((frameFlags & 0x00C0) != 0)
+				return null;
+			if((frameFlags & 0x0020) != 0 && frame.remaining() > 0)
+				frame.position(frame.position() + 1);
+		}
+
+		else if(version == 4) {
+			if((frameFlags & 0x000C) != 0)
+				return null;
+			if((frameFlags & 0x0040) != 0 && frame.remaining() > 0)
+				frame.position(frame.position() + 1);
+			if((frameFlags & 0x0001) != 0 && frame.remaining() >= 4)
+				frame.position(frame.position() + 4);
+			if((frameFlags & 0x0002) != 0 || tagUnsynchronised)
+				frame = resynchronise(frame.slice());
+		}
+
+		return frame;
+	}
+
+	/**
+	 * Decodes a text frame, joining its values with "; "
+	 */
+	private static String decodeText(ByteBuffer frame) {
+
+		if(!frame.hasRemaining())
+			return null;
+
+		int encoding = frame.get();
+		Charset charset;
+		switch(encoding) {
+		case 1: charset = StandardCharsets.UTF_16; break;
+		case 2: charset = StandardCharsets.UTF_16BE; break;
+		case 3: charset = StandardCharsets.UTF_8; break;
+		default: charset = StandardCharsets.ISO_8859_1;
+		}
+
+		byte[] bytes = new byte[frame.remaining()];
+		frame.get(bytes);
+		String text = new String(bytes, charset);
+
+		int end = text.length();
+		while(end > 0 && text.charAt(end - 1) == '\0')
+			end--;
+
+		return text.substring(0, end).replace("\0", "; ").trim();
+	}
+
+	/**
+	 * Returns the description of a genre, which may be given by its ID3v1 number
+	 */
+	private static String genreDescription(String genre) {
+
+		if(genre == null)
+			return null;
+
+		Matcher matcher = NUMERIC_GENRE.matcher(genre);
+		if(!matcher.matches())
+			return genre;
+
+		if(matcher.group(2) != null && !matcher.group(2).isEmpty())
+			return matcher.group(2);
+
+		int number = Integer.parseInt(matcher.group(1) != null ? matcher.group(1) : matcher.group(3));
+		return number < ID3v1Genres.GENRES.length ? ID3v1Genres.GENRES[number] : genre;
+	}
+
+	/**
+	 * Returns the field of the frame with the given id, or -1 if it is not
+	 * one of the fields extracted
+	 */
+	private static int fieldOf(String id, int version) {
+
+		for(int field = 0; field < FRAME_IDS.length; field++)
+			if(FRAME_IDS[field][version == 2 ? 0 : 1].equals(id))
+				return field;
+
+		return -1;
+	}
+
+	/**
+	 * Reads at most length bytes of the channel from the given position
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0)
+				break;
+		}
+
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Removes the zero bytes that were inserted after each 0xFF byte
+	 * by the unsynchronisation scheme
+	 */
+	private static ByteBuffer resynchronise(ByteBuffer data) {
+
+		ByteBuffer result = ByteBuffer.allocate(data.remaining());
+		boolean afterFF = false;
+
+		while(data.hasRemaining()) {
+			byte b = data.get();
+			if(!(afterFF && b == 0))
+				result.put(b);
+			afterFF = (b & 0xFF) == 0xFF;
+		}
+
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * Reads a 28 bit integer stored in 4 bytes of 7 bits
+	 */
+	private static int syncSafe(ByteBuffer buffer, int index) {
+		return ((buffer.get(index) & 0x7F) << 21) | ((buffer.get(index + 1) & 0x7F) << 14)
+				| ((buffer.get(index + 2) & 0x7F) << 7) | (buffer.get(index + 3) & 0x7F);
+	}
+
+	/**
+	 * Reads a fixed size ISO-8859-1 string of the ID3v1 tag
+	 */
+	private static String latin1(ByteBuffer buffer, int index, int length) {
+
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++)
+			bytes[i] = buffer.get(index + i);
+
+		int end = 0;
+		while(end < length && bytes[end] != 0)
+			end++;
+
+		return new String(bytes, 0, end, StandardCharsets.ISO_8859_1).trim();
+	}
+
+	/**
+	 * Auxiliary method that sets a value only if the field does not have one
+	 */
+	private void setIfMissing(int field, String value) {
+		if(values[field] == null)
+			values[field] = emptyToNull(value);
+	}
+
+	/**
+	 * Auxiliary method that replaces empty Strings with null
+	 */
+	private static String emptyToNull(String str) {
+		return str == null || str.isEmpty() ? null : str;
+	}
+
+	/**
+	 * Auxiliary method used to replace "null" Strings with "unknown"
+	 *
+	 * @param str the string to be checked
+	 * @return If str is "null" it returns "unknown", otherwise returns str
+	 */
+	private String nullToUnknown(String str) {
+		return str == null ? "unknown" : str;
+	}
+
+}
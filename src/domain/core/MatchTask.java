@@ -0,0 +1,79 @@
+package domain.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import domain.facade.ISong;
+/**
+ * 
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A fork-join task that finds the songs of a range of a list that match
+ * with a regular expression. Ranges larger than the threshold are split
+ * in half and searched in parallel, and the results are joined in the
+ * order of the list.
+ * 
+ * The list must not be changed while the task is running.
+ * 
+ */
+final class MatchTask extends RecursiveTask<List<ISong>> {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final transient List<ISong> songs;
+	private final Pattern pattern;
+	private final int from;
+	private final int to;
+	private final int threshold;
+	
+	/**
+	 * Constructor of a task that searches the songs in positions from 
+	 * (inclusive) to to (exclusive) of the given list
+	 * 
+	 * @param songs the list of songs
+	 * @param pattern the compiled regular expression
+	 * @param from the first position to search
+	 * @param to the position after the last one to search
+	 * @param threshold the largest range that is searched sequentially
+	 * @requires 0 <= from <= to <= songs.size() && threshold > 0
+	 */
+	MatchTask(List<ISong> songs, Pattern pattern, int from, int to, int threshold) {
+		this.songs = songs;
+		this.pattern = pattern;
+		this.from = from;
+		this.to = to;
+		this.threshold = threshold;
+	}
+	
+	@Override
+	protected List<ISong> compute() {
+		
+		if(to - from <= threshold) {
+			List<ISong> matches = new ArrayList<>();
+			Matcher matcher = pattern.matcher("");
+			
+			for(int i = from; i < to; i++) {
+				ISong song = songs.get(i);
+				if(song.matches(matcher))
+					matches.add(song);
+			}
+			
+			return matches;
+		}
+		
+		int middle = (from + to) >>> 1;
+		MatchTask left = new MatchTask(songs, pattern, from, middle, threshold);
+		MatchTask right = new MatchTask(songs, pattern, middle, to, threshold);
+		
+		left.fork();
+		List<ISong> matches = right.compute();
+		List<ISong> leftMatches = left.join();
+		
+		leftMatches.addAll(matches);
+		return leftMatches;
+	}
+}
@@ -0,0 +1,245 @@
+package domain.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A persistent cache of the metadata of music files, that gives the
+ * extractor of a file without parsing it again if the file still has
+ * the same size and modification time it had when it was parsed. Files
+ * that changed, or were never seen, are parsed by the given extractors
+ * and their metadata replaces the one in the cache.
+ *
+ * The cache is stored in a compact binary file and can be used by
+ * several threads at once.
+ *
+ */
+public final class MetaInfoCache {
+
+	private static final int MAGIC = 0x4C454954;
+	private static final int VERSION = 1;
+
+	private final Function<String, IMetaInfoExtractor> extractors;
+	private final Map<String, CachedMetaInfo> entries;
+	private volatile boolean changed;
+
+	/**
+	 * Constructor of an empty cache
+	 *
+	 * @param extractors the function that gives the extractor of a file
+	 * that is not in the cache
+	 */
+	public MetaInfoCache(Function<String, IMetaInfoExtractor> extractors) {
+		this.extractors = extractors;
+		this.entries = new ConcurrentHashMap<>();
+		this.changed = false;
+	}
+
+	/**
+	 * Returns a cache with the entries stored in the given file. If the file
+	 * does not exist, or is not a valid cache file, the cache starts empty
+	 *
+	 * @param file the file where the cache is stored
+	 * @param extractors the function that gives the extractor of a file
+	 * that is not in the cache
+	 * @return the cache stored in file
+	 */
+	public static MetaInfoCache load(Path file, Function<String, IMetaInfoExtractor> extractors) {
+
+		MetaInfoCache cache = new MetaInfoCache(extractors);
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+
+			if(in.readInt() != MAGIC || in.readInt() != VERSION)
+				return cache;
+
+			int count = in.readInt();
+			for(int i = 0; i < count; i++) {
+				String filename = in.readUTF();
+				cache.entries.put(filename, CachedMetaInfo.read(in));
+			}
+
+		} catch (NoSuchFileException e) {
+			// nothing was cached yet
+		} catch (IOException e) {
+			cache.entries.clear();
+			System.err.println("Ignoring invalid metadata cache " + file);
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Stores the entries of the cache in the given file, if they changed
+	 * since the cache was loaded or last saved. The file is only replaced
+	 * once it is completely written
+	 *
+	 * @param file the file where the cache is stored
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+
+		if(!changed)
+			return;
+		changed = false;
+
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+		try {
+			List<Map.Entry<String, CachedMetaInfo>> snapshot = new ArrayList<>(entries.entrySet());
+
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(snapshot.size());
+				for(Map.Entry<String, CachedMetaInfo> entry : snapshot) {
+					out.writeUTF(entry.getKey());
+					entry.getValue().write(out);
+				}
+			}
+
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException e) {
+			changed = true;
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the extractor of the metadata of the given file, which is the
+	 * cached one if the file did not change since it was parsed
+	 *
+	 * @param filename the name of the file
+	 * @return the extractor of the metadata of filename
+	 */
+	public IMetaInfoExtractor extract(String filename) {
+
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(Paths.get(filename), BasicFileAttributes.class);
+		} catch (IOException e) {
+			return extractors.apply(filename);
+		}
+
+		long size = attributes.size();
+		long lastModified = attributes.lastModifiedTime().toMillis();
+
+		CachedMetaInfo cached = entries.get(filename);
+		if(cached != null && cached.size == size && cached.lastModified == lastModified)
+			return cached;
+
+		IMetaInfoExtractor extractor = extractors.apply(filename);
+		entries.put(filename, new CachedMetaInfo(size, lastModified, extractor));
+		changed = true;
+		return extractor;
+	}
+
+	/**
+	 * Forgets the metadata of the files that do not exist anymore
+	 */
+	public void prune() {
+		if(entries.keySet().removeIf(filename -> !Files.exists(Paths.get(filename))))
+			changed = true;
+	}
+
+	/**
+	 * Returns the number of files in the cache
+	 * @return the number of files in the cache
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * The metadata of a file, together with the size and modification
+	 * time the file had when it was parsed
+	 */
+	private static final class CachedMetaInfo implements IMetaInfoExtractor {
+
+		private final long size;
+		private final long lastModified;
+		private final String title;
+		private final List<String> artists;
+		private final String genre;
+		private final String album;
+
+		private CachedMetaInfo(long size, long lastModified, IMetaInfoExtractor extractor) {
+			this(size, lastModified, extractor.getTitle(), extractor.getArtists(), extractor.getGenre(), extractor.getAlbum());
+		}
+
+		private CachedMetaInfo(long size, long lastModified, String title, List<String> artists, String genre, String album) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.title = title;
+			this.artists = Collections.unmodifiableList(new ArrayList<>(artists));
+			this.genre = genre;
+			this.album = album;
+		}
+
+		private static CachedMetaInfo read(DataInputStream in) throws IOException {
+
+			long size = in.readLong();
+			long lastModified = in.readLong();
+			String title = in.readUTF();
+			int count = in.readInt();
+			List<String> artists = new ArrayList<>(count);
+			for(int i = 0; i < count; i++)
+				artists.add(in.readUTF());
+
+			return new CachedMetaInfo(size, lastModified, title, artists, in.readUTF(), in.readUTF());
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeLong(size);
+			out.writeLong(lastModified);
+			out.writeUTF(title);
+			out.writeInt(artists.size());
+			for(String artist : artists)
+				out.writeUTF(artist);
+			out.writeUTF(genre);
+			out.writeUTF(album);
+		}
+
+		@Override
+		public String getTitle() {
+			return title;
+		}
+
+		@Override
+		public List<String> getArtists() {
+			return artists;
+		}
+
+		@Override
+		public String getGenre() {
+			return genre;
+		}
+
+		@Override
+		public String getAlbum() {
+			return album;
+		}
+	}
+}
@@ -3,13 +3,26 @@ package domain.core;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import domain.facade.ISong;
 import domain.player.Player;
 import domain.player.PlayerFactory;
-import util.adts.ArrayQListWithSelection;
+import util.adts.TombstoneQListWithSelection;
 import util.adts.QListWithSelection;
 import util.observer.AbsSubject;
 import util.observer.Subject;
@@ -26,11 +39,33 @@ import util.observer.Subject;
  * This class implements QListWithSelection<ISong>, 
  * Subject<SongLibraryEvent> and PropertyChangeListener
  * 
+ * A library can be used by several threads at once. Changes are made by a
+ * single writer at a time, which also emits their events, so listeners get
+ * the events by the order of the changes. Reading a song by its index waits
+ * for the change in progress and costs O(log n), whatever the changes before
+ * it. Iterations never wait for the writer: they go over an immutable copy of
+ * the library, made again only when it is iterated after a change, and
+ * searches are answered by an index that can be read while it changes. The
+ * selection belongs to the writer, so selecting and reading the selected
+ * song wait for the changes in progress.
+ * 
  */
 public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListWithSelection<ISong>, Subject<SongLibraryEvent>, PropertyChangeListener {
 
-	private ArrayQListWithSelection<ISong> library;
-	private boolean isPlaying;
+	private static final int PATTERN_CACHE_CAPACITY = 64;
+	private static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
+	private static final AtomicLong NEXT_ID = new AtomicLong();
+
+	private final Lock writer;
+	private final Lock reader;
+	private TombstoneQListWithSelection<ISong> library;
+	private volatile List<ISong> snapshot;
+	private volatile int count;
+	private SongIndex index;
+	private PatternCache patterns;
+	private SymbolTable symbols;
+	private volatile int parallelThreshold;
+	private volatile boolean isPlaying;
 	private Player player;
 	
 	/**
@@ -38,10 +73,40 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	public MusicLibrary() {
 		super();
-		this.library = new ArrayQListWithSelection<>();
+		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		this.writer = lock.writeLock();
+		this.reader = lock.readLock();
+		this.library = new TombstoneQListWithSelection<>();
+		this.snapshot = Collections.emptyList();
+		this.index = new SongIndex();
+		this.patterns = new PatternCache(PATTERN_CACHE_CAPACITY);
+		this.symbols = new SymbolTable();
+		this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 		this.isPlaying = false;
 		this.player = PlayerFactory.INSTANCE.getPlayer();
 		player.addListener(this);
+		registerSynchronousListener(index);
+	}
+	
+	/**
+	 * Returns the table of the shared metadata values of the songs
+	 * of the library, to be used when creating its songs
+	 * 
+	 * @return the table of the shared metadata values of the library
+	 */
+	public SymbolTable getSymbols() {
+		return this.symbols;
+	}
+	
+	/**
+	 * Returns the lock held by every change to the library, while it changes
+	 * and emits the events of the change. The library does not change while
+	 * a thread holds the lock, except by that thread
+	 * 
+	 * @return the lock of the changes to the library
+	 */
+	public Lock writeLock() {
+		return this.writer;
 	}
 	
 	/**
@@ -51,7 +116,7 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public int size() {
-		return this.library.size();
+		return this.count;
 	}
 	
 	/**
@@ -59,7 +124,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public ISong get(int i) {
-		return this.library.get(i);
+		reader.lock();
+		try {
+			return this.library.get(i);
+		} finally {
+			reader.unlock();
+		}
 	}
 	
 	/**
@@ -70,19 +140,55 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public void add(ISong e) {
-		SongAddedLibraryEvent added = new SongAddedLibraryEvent(e, this);
-		emitEvent(added);
-		this.library.add(e);
+		writer.lock();
+		try {
+			assignId(e);
+			SongAddedLibraryEvent added = new SongAddedLibraryEvent(e, this);
+			emitEvent(added);
+			this.library.add(e);
+			changed();
+		} finally {
+			writer.unlock();
+		}
 	}
 	
 	/**
-	 * Returns an iterator for the library
+	 * Adds the given songs at the end of the library, by the order
+	 * of the collection, and makes the last one selected. A single
+	 * event is emitted for all the songs
+	 * 
+	 * @param songs the songs to be added
+	 * @ensures !songs.isEmpty() ==> someSelected() == True
+	 */
+	public void addAll(Collection<ISong> songs) {
+		
+		if(songs.isEmpty())
+			return;
+		
+		List<ISong> added = new ArrayList<>(songs);
+		writer.lock();
+		try {
+			for(ISong song : added) {
+				assignId(song);
+				this.library.add(song);
+			}
+			changed();
+			
+			emitEvent(new SongsAddedLibraryEvent(added, this));
+		} finally {
+			writer.unlock();
+		}
+	}
+	
+	/**
+	 * Returns an iterator for the library, over the songs that were in
+	 * the library when it was called
 	 * 
 	 * @return an iterator for the library
 	 */
 	@Override
 	public Iterator<ISong> iterator() {
-		return this.library.iterator();
+		return songs().iterator();
 	}
 	
 	/**
@@ -94,7 +200,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public void select(int i) {
-		this.library.select(i);
+		writer.lock();
+		try {
+			this.library.select(i);
+		} finally {
+			writer.unlock();
+		}
 	}
 	
 	/**
@@ -104,7 +215,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public boolean someSelected() {
-		return this.library.someSelected();
+		writer.lock();
+		try {
+			return this.library.someSelected();
+		} finally {
+			writer.unlock();
+		}
 	}
 	
 	/**
@@ -115,7 +231,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public int getIndexSelected() {
-		return this.library.getIndexSelected();
+		writer.lock();
+		try {
+			return this.library.getIndexSelected();
+		} finally {
+			writer.unlock();
+		}
 	}
 	
 	/**
@@ -126,7 +247,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public void next() {
-		this.library.next();
+		writer.lock();
+		try {
+			this.library.next();
+		} finally {
+			writer.unlock();
+		}
 	}
 	
 	/**
@@ -137,7 +263,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public void previous() {
-		this.library.previous();
+		writer.lock();
+		try {
+			this.library.previous();
+		} finally {
+			writer.unlock();
+		}
 	}
 	
 	/**
@@ -146,13 +277,44 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public void remove() {
-		int beforeSize = library.size();
-		SongRemovedLibraryEvent removed = new SongRemovedLibraryEvent(getSelected(), this);
-		this.library.remove();
+		writer.lock();
+		try {
+			int beforeSize = library.size();
+			SongRemovedLibraryEvent removed = new SongRemovedLibraryEvent(getSelected(), this);
+			this.library.remove();
+			
+			if(library.size() < beforeSize) { //Check if a song has been removed
+				changed();
+				emitEvent(removed);
+			}
+		} finally {
+			writer.unlock();
+		}
+	}
+	
+	/**
+	 * Removes every song of the library that satisfies the given predicate
+	 * in a single pass, emitting a single event for all the removed songs.
+	 * If some song is removed the library stops having a selected song
+	 * 
+	 * @param filter the predicate of the songs to be removed
+	 * @return the number of removed songs
+	 */
+	public int removeAll(Predicate<ISong> filter) {
 		
-		if(library.size() < beforeSize) //Check if a song has been removed
-			emitEvent(removed);
+		writer.lock();
+		try {
+			List<ISong> removed = this.library.removeIf(filter);
+			
+			if(!removed.isEmpty()) {
+				changed();
+				emitEvent(new SongsRemovedLibraryEvent(removed, this));
+			}
 			
+			return removed.size();
+		} finally {
+			writer.unlock();
+		}
 	}
 	
 	/**
@@ -163,7 +325,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 */
 	@Override
 	public ISong getSelected() {
-		return this.library.getSelected();
+		writer.lock();
+		try {
+			return this.library.getSelected();
+		} finally {
+			writer.unlock();
+		}
 	}
 
 	/**
@@ -177,7 +344,7 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 		if(isPlaying()) {
 			
 			if(evt.getNewValue().equals(Player.PlayingState.ENDED)) {
-				getSelected().incTimesPlayed();
+				incTimesPlayed(getSelected());
 			}
 			
 			else if(evt.getNewValue().equals(Player.PlayingState.STOPED))
@@ -223,9 +390,14 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 * @ensures getRating().equals(\old(getRating().inc())
 	 */
 	public void incRateSelected() {
-		this.library.getSelected().incRating();
-		SongRatedLibraryEvent incRating = new SongRatedLibraryEvent(getSelected(), this);
-		emitEvent(incRating);
+		writer.lock();
+		try {
+			this.library.getSelected().incRating();
+			SongRatedLibraryEvent incRating = new SongRatedLibraryEvent(getSelected(), this);
+			emitEvent(incRating);
+		} finally {
+			writer.unlock();
+		}
 	}
 	
 	/**
@@ -234,30 +406,274 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 * @ensures getRating().equals(\old(getRating().dec())
 	 */
 	public void decRateSelected() {
-		this.library.getSelected().decRating();
-		SongRatedLibraryEvent decRating = new SongRatedLibraryEvent(getSelected(), this);
-		emitEvent(decRating);
+		writer.lock();
+		try {
+			this.library.getSelected().decRating();
+			SongRatedLibraryEvent decRating = new SongRatedLibraryEvent(getSelected(), this);
+			emitEvent(decRating);
+		} finally {
+			writer.unlock();
+		}
+	}
+	
+	/**
+	 * Changes the rating of the given song of the library to the given one,
+	 * emitting a single event if the rating changed
+	 * 
+	 * @param song the song of the library to be rated
+	 * @param rate the new rating of the song
+	 * @requires song != null && rate != null
+	 * @requires Rate.MIN_RATING <= rate.getValue() <= Rate.MAX_RATING
+	 * @ensures song.getRating().equals(rate)
+	 */
+	public void rate(ISong song, Rate rate) {
+		
+		writer.lock();
+		try {
+			if(song.getRating().equals(rate))
+				return;
+			
+			while(song.getRating().isLessThan(rate) && song.getRating().getValue() < Rate.MAX_RATING)
+				song.incRating();
+			while(song.getRating().isGreaterThan(rate) && song.getRating().getValue() > Rate.MIN_RATING)
+				song.decRating();
+			
+			emitEvent(new SongRatedLibraryEvent(song, this));
+		} finally {
+			writer.unlock();
+		}
+	}
+	
+	/**
+	 * Increments the number of times the given song of the library was
+	 * played, emitting an event
+	 * 
+	 * @param song the song of the library that was played
+	 * @requires song != null
+	 * @ensures song.getTimesPlayed() == \old(song.getTimesPlayed()) + 1
+	 */
+	public void incTimesPlayed(ISong song) {
+		writer.lock();
+		try {
+			song.incTimesPlayed();
+			emitEvent(new SongPlayedLibraryEvent(song, this));
+		} finally {
+			writer.unlock();
+		}
+	}
+	
+	/**
+	 * Changes the number of times the given song of the library was played
+	 * to the given one, emitting a single event if it changed
+	 * 
+	 * @param song the song of the library
+	 * @param timesPlayed the new number of times the song was played
+	 * @requires song != null && timesPlayed >= song.getTimesPlayed()
+	 * @ensures song.getTimesPlayed() == timesPlayed
+	 */
+	public void setTimesPlayed(ISong song, int timesPlayed) {
+		
+		writer.lock();
+		try {
+			if(song.getTimesPlayed() >= timesPlayed)
+				return;
+			
+			while(song.getTimesPlayed() < timesPlayed)
+				song.incTimesPlayed();
+			
+			emitEvent(new SongPlayedLibraryEvent(song, this));
+		} finally {
+			writer.unlock();
+		}
+	}
+	
+	/**
+	 * A rating or play of a song is redundant if it is followed by another
+	 * one of the same song, since listeners read the current values of
+	 * the song
+	 */
+	@Override
+	protected boolean coalesces(SongLibraryEvent previous, SongLibraryEvent next) {
+		return previous.getClass() == next.getClass() && previous.getSong() == next.getSong()
+				&& (previous instanceof SongRatedLibraryEvent || previous instanceof SongPlayedLibraryEvent);
+	}
+	
+	/**
+	 * The keys of an event are the songs it is about, so listeners can
+	 * subscribe to the events of a given song, including the events of
+	 * several songs at once that contain it
+	 */
+	@Override
+	protected Collection<?> keysOf(SongLibraryEvent e) {
+		return e.getSongs();
 	}
 	
 	/**
 	 * Returns a iterable structure with the songs of the library
-	 * that match with the given regular expression
+	 * that match with the given regular expression. Literals, prefixes
+	 * and ".*" are answered by the library's index, other expressions
+	 * are compiled once and checked against every song, in parallel
+	 * if the library has more songs than getParallelThreshold()
 	 * 
 	 * @param reexp the regular expression to be used
 	 * @return a iterable structure with the songs of the library that match with the given regular expression
 	 */
 	public Iterable<ISong> getMatches(String reexp) {
 
-		List<ISong> matches = new ArrayList<>();
+		List<ISong> matches = index.lookup(reexp);
+		if(matches != null)
+			return matches;
 		
-		for(ISong song : this.library) {
-			if(song.matches(reexp))
+		Pattern pattern = patterns.get(reexp);
+		List<ISong> songs = songs();
+		int threshold = parallelThreshold;
+		if(songs.size() > threshold)
+			return ForkJoinPool.commonPool().invoke(new MatchTask(songs, pattern, 0, songs.size(), threshold));
+		
+		matches = new ArrayList<>();
+		Matcher matcher = pattern.matcher("");
+		
+		for(ISong song : songs) {
+			if(song.matches(matcher))
 				matches.add(song);
 		}
 		
 		return matches;
 	}
 	
+	/**
+	 * Returns the song of the library with the given file name, if there 
+	 * is one. If several songs share the file name, the one added first 
+	 * is returned
+	 * 
+	 * @param filename the file name of the song
+	 * @return the song of the library with the given file name, if it exists
+	 */
+	public Optional<ISong> find(String filename) {
+		Map.Entry<Long, ISong> first = index.filenamePostings(filename).firstEntry();
+		return first == null ? Optional.empty() : Optional.of(first.getValue());
+	}
+	
+	/**
+	 * Returns the song of the library with the given identifier, if there is one
+	 * 
+	 * @param id the identifier of the song
+	 * @return the song of the library with the given identifier, if it exists
+	 */
+	public Optional<ISong> find(SongId id) {
+		return Optional.ofNullable(index.song(id));
+	}
+	
+	/**
+	 * Checks if the library has a song with the given file name
+	 * 
+	 * @param filename the file name of the song
+	 * @return true if some song of the library has the given file name, false otherwise
+	 */
+	public boolean contains(String filename) {
+		return !index.filenamePostings(filename).isEmpty();
+	}
+	
+	/**
+	 * Returns a iterable structure with the songs of the library that
+	 * satisfy the given query, in the library's own order. The query is
+	 * answered from the condition that the library's index shows to select
+	 * the fewest songs, checking the other conditions only against those
+	 * 
+	 * @param query the query, as described in SongQuery
+	 * @return a iterable structure with the songs of the library that satisfy the query
+	 * @throws IllegalArgumentException if query is not well formed
+	 */
+	public Iterable<ISong> query(String query) {
+		return query(SongQuery.parse(query));
+	}
+	
+	/**
+	 * Returns a iterable structure with the songs of the library that
+	 * satisfy the given parsed query, in the library's own order
+	 * 
+	 * @param query the query
+	 * @return a iterable structure with the songs of the library that satisfy the query
+	 */
+	public Iterable<ISong> query(SongQuery query) {
+		return query.execute(index);
+	}
+	
+	/**
+	 * Returns the page of the songs of the library that match with the
+	 * given regular expression that starts at the given offset, without
+	 * checking the songs after the last one of the page
+	 * 
+	 * @param reexp the regular expression to be used
+	 * @param offset the number of matching songs to skip
+	 * @param limit the maximum number of matching songs to return
+	 * @requires offset >= 0 && limit >= 0
+	 * @return a iterable structure with at most limit songs of the library that match with the given regular expression
+	 */
+	public Iterable<ISong> getMatches(String reexp, int offset, int limit) {
+		return streamMatches(reexp).skip(offset).limit(limit).collect(Collectors.toList());
+	}
+	
+	/**
+	 * Returns a lazy stream of the songs of the library that match with
+	 * the given regular expression, in the library's own order. Songs are
+	 * only checked as the stream is consumed, so operations like limit or
+	 * findFirst stop the search early.
+	 * 
+	 * The stream is sequential. Songs matched by the index are the ones
+	 * indexed as the stream is consumed, the others are the songs that were
+	 * in the library when it was called.
+	 * 
+	 * @param reexp the regular expression to be used
+	 * @return a stream of the songs of the library that match with the given regular expression
+	 */
+	public Stream<ISong> streamMatches(String reexp) {
+		
+		Stream<ISong> matches = index.stream(reexp);
+		if(matches != null)
+			return matches;
+		
+		//a matcher per thread, since the caller may make the stream parallel
+		Pattern pattern = patterns.get(reexp);
+		ThreadLocal<Matcher> matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+		return streamSongs().filter(song -> song.matches(matchers.get()));
+	}
+	
+	/**
+	 * Returns a lazy stream of the songs of the library in the library's
+	 * own order, without copying them.
+	 * 
+	 * The stream has the songs that were in the library when it was called,
+	 * even if the library changes while it is consumed.
+	 * 
+	 * @return a stream of the songs of the library
+	 */
+	public Stream<ISong> streamSongs() {
+		return songs().stream();
+	}
+	
+	/**
+	 * Returns the number of songs above which searches that are not answered
+	 * by the index are split among the threads of the common fork-join pool
+	 * 
+	 * @return the parallel search threshold
+	 */
+	public int getParallelThreshold() {
+		return this.parallelThreshold;
+	}
+	
+	/**
+	 * Sets the number of songs above which searches that are not answered
+	 * by the index are split among the threads of the common fork-join pool.
+	 * Each parallel task searches at most this number of songs
+	 * 
+	 * @param threshold the new parallel search threshold
+	 * @requires threshold > 0
+	 */
+	public void setParallelThreshold(int threshold) {
+		this.parallelThreshold = threshold;
+	}
+	
 	/**
 	 * Returns a iterable structure with the songs of the library
 	 * in the library's own order
@@ -265,13 +681,7 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 	 * @return a iterable structure with the songs of the library in the library's own order
 	 */
 	public Iterable<ISong> getSongs() {
-
-		List<ISong> songs = new ArrayList<>();
-		
-		for(ISong song : this.library)
-			songs.add(song);
-		
-		return songs;
+		return songs();
 	}
 	
 	@Override
@@ -279,18 +689,68 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent> implements QListW
 		
 		StringBuilder sb = new StringBuilder();
 		
-		int i = 0;
-		for(ISong song : library) {
-			if(i == getIndexSelected())
-				sb.append("-> ");
-			sb.append(i);
-			sb.append(" ");
-			sb.append(song.toString());
-			sb.append("\n");
-			i++;
+		writer.lock();
+		try {
+			int i = 0;
+			for(ISong song : library) {
+				if(i == getIndexSelected())
+					sb.append("-> ");
+				sb.append(i);
+				sb.append(" ");
+				sb.append(song.toString());
+				sb.append("\n");
+				i++;
+			}
+		} finally {
+			writer.unlock();
 		}
 		
 		return sb.toString();
 	}
+	
+	/**
+	 * Auxiliary method that returns the immutable copy of the songs of
+	 * the library, copying them if the library changed since the last copy.
+	 * Only used to iterate the songs, so the copy costs no more than the
+	 * iteration that needs it
+	 */
+	private List<ISong> songs() {
+		
+		List<ISong> songs = this.snapshot;
+		if(songs != null)
+			return songs;
+		
+		reader.lock();
+		try {
+			songs = this.snapshot;
+			if(songs == null) {
+				List<ISong> copy = new ArrayList<>(library.size());
+				for(ISong song : library)
+					copy.add(song);
+				songs = Collections.unmodifiableList(copy);
+				this.snapshot = songs;
+			}
+			return songs;
+		} finally {
+			reader.unlock();
+		}
+	}
+	
+	/**
+	 * Auxiliary method, called by the writer after each change to the songs
+	 * of the library, that drops the copy of the songs and updates the size
+	 */
+	private void changed() {
+		this.snapshot = null;
+		this.count = library.size();
+	}
 
+	/**
+	 * Gives the song a new identifier, different from the ones given by
+	 * every library, if it does not have one yet
+	 */
+	private void assignId(ISong song) {
+		if(song.getId() == null)
+			song.setId(new SongId(NEXT_ID.getAndIncrement()));
+	}
 }
@@ -0,0 +1,50 @@
+package domain.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A bounded cache of compiled regular expressions, that discards the
+ * least recently used pattern when it is full, so that repeated searches
+ * with the same regular expression only compile it once
+ * 
+ */
+final class PatternCache {
+	
+	private final Map<String, Pattern> patterns;
+	
+	/**
+	 * Constructor of an empty cache
+	 * 
+	 * @param capacity the maximum number of patterns kept
+	 * @requires capacity > 0
+	 */
+	PatternCache(int capacity) {
+		this.patterns = new LinkedHashMap<>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the compiled pattern of the given regular expression,
+	 * compiling it if it is not in the cache
+	 * 
+	 * @param regexp the regular expression
+	 * @requires regexp != null
+	 * @return the compiled pattern of regexp
+	 */
+	synchronized Pattern get(String regexp) {
+		return patterns.computeIfAbsent(regexp, Pattern::compile);
+	}
+}
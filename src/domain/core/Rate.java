@@ -22,6 +22,15 @@ public final class Rate {
 		this.RATING = rating;
 	}
 	
+	/**
+	 * Returns the classification as an integer
+	 * 
+	 * @return the classification, between MIN_RATING and MAX_RATING
+	 */
+	public int getValue() {
+		return this.RATING;
+	}
+	
 	/**
 	 * Returns if possible a new object with a classification 1 lower 
 	 * than this.RATING, otherwise returns this object
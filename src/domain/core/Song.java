@@ -1,6 +1,7 @@
 package domain.core;
 
 import java.util.List;
+import java.util.regex.Matcher;
 
 import domain.facade.ISong;
 import util.adts.RegExpMatchable;
@@ -13,13 +14,17 @@ import util.adts.RegExpMatchable;
  * A class whose objects represent a song, which has its file's name,
  * metadata information, numbers of times played and classification
  * 
+ * The number of times played and the classification can be read by any
+ * thread while they change, and each change is atomic.
+ * 
  */
 public class Song implements ISong, RegExpMatchable{
 	
+	private volatile SongId id;
 	private String fileName;
 	private SongMetaInfo metaInfo;
-	private int playedCounter;
-	private Rate rate;
+	private volatile int playedCounter;
+	private volatile Rate rate;
 	
 	/**
 	 * Constructor of the object, receives its metadata
@@ -36,11 +41,55 @@ public class Song implements ISong, RegExpMatchable{
 		this.rate = new Rate(0);
 	}
 	
+	/**
+	 * Constructor of the object, receives its metadata, file name,
+	 * classification and number of times played, used to restore
+	 * songs that were previously stored
+	 * 
+	 * @param info the metadata of the song
+	 * @param filename the song's file name
+	 * @param rate the song's classification
+	 * @param timesPlayed the number of times the song was played
+	 * @requires rate != null && timesPlayed >= 0
+	 */
+	public Song(SongMetaInfo info, String filename, Rate rate, int timesPlayed) {
+		this.metaInfo = info;
+		this.fileName = filename;
+		this.playedCounter = timesPlayed;
+		this.rate = rate;
+	}
+	
+	/**
+	 * Returns the identifier of the song, given by the library the song was
+	 * first added to
+	 * 
+	 * @return the song's identifier, or null if it was never added to a library
+	 */
+	@Override
+	public SongId getId() {
+		return this.id;
+	}
+	
+	/**
+	 * Gives the song its identifier, which is done by the library the song 
+	 * is first added to
+	 * 
+	 * @param id the identifier of the song
+	 * @requires id != null
+	 * @throws IllegalStateException if the song already has an identifier
+	 */
+	@Override
+	public synchronized void setId(SongId id) {
+		if(this.id != null)
+			throw new IllegalStateException("The song already has the identifier " + this.id);
+		this.id = id;
+	}
+	
 	/**
 	 * Increments the number of times the song was played
 	 */
 	@Override
-	public void incTimesPlayed() {
+	public synchronized void incTimesPlayed() {
 		this.playedCounter++;
 	}
 	
@@ -70,7 +119,7 @@ public class Song implements ISong, RegExpMatchable{
 	 * @ensures getRating().equals(\old(getRating().inc())
 	 */
 	@Override
-	public void incRating() {
+	public synchronized void incRating() {
 		this.rate = rate.incRating();
 	}
 	
@@ -79,7 +128,7 @@ public class Song implements ISong, RegExpMatchable{
 	 * @ensures getRating().equals(\old(getRating().dec())
 	 */
 	@Override
-	public void decRating() {
+	public synchronized void decRating() {
 		this.rate = rate.decRating();
 	}
 	
@@ -150,46 +199,18 @@ public class Song implements ISong, RegExpMatchable{
 		return metaInfo.matches(regexp);
 	}
 	
+	/**
+	 * Checks if any song data matches the pattern of the given matcher
+	 *  
+	 * @param matcher the matcher of the regular expression to be used
+	 * @requires matcher != null
+	 * @return whether some data of the song matches with the matcher's pattern
+	 */
 	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((fileName == null) ? 0 : fileName.hashCode());
-		result = prime * result + ((metaInfo == null) ? 0 : metaInfo.hashCode());
-		result = prime * result + playedCounter;
-		result = prime * result + ((rate == null) ? 0 : rate.hashCode());
-		return result;
-	}
-
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (obj == null)
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		Song other = (Song) obj;
-		if (fileName == null) {
-			if (other.fileName != null)
-				return false;
-		} else if (!fileName.equals(other.fileName))
-			return false;
-		if (metaInfo == null) {
-			if (other.metaInfo != null)
-				return false;
-		} else if (!metaInfo.equals(other.metaInfo))
-			return false;
-		if (playedCounter != other.playedCounter)
-			return false;
-		if (rate == null) {
-			if (other.rate != null)
-				return false;
-		} else if (!rate.equals(other.rate))
-			return false;
-		return true;
+	public boolean matches(Matcher matcher) {
+		return metaInfo.matches(matcher);
 	}
-
+	
 	public String toString() {
 		
 		StringBuilder sb = new StringBuilder();
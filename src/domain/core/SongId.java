@@ -0,0 +1,33 @@
+package domain.core;
+
+/**
+ * 
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ * 
+ * A record whose objects represent the identifier of a song, given by the
+ * library the song was first added to. The identifier of a song never
+ * changes, so it can be used as a key by indexes, playlists and caches,
+ * even when the song is played or rated
+ * 
+ */
+public record SongId(long value) implements Comparable<SongId> {
+
+	/**
+	 * Compares this identifier with the given one, by the order
+	 * they were given
+	 * 
+	 * @param other the other identifier
+	 * @return a negative number, zero or a positive number if this identifier
+	 * was given before, is the same or was given after other
+	 */
+	@Override
+	public int compareTo(SongId other) {
+		return Long.compare(this.value, other.value);
+	}
+	
+	@Override
+	public String toString() {
+		return "#" + value;
+	}
+}
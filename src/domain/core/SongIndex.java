@@ -0,0 +1,632 @@
+package domain.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import domain.facade.ISong;
+import util.observer.Listener;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * An inverted index over the metadata of the songs of a library, where
+ * each term of a field (a title, album, genre or artist value) leads to
+ * the songs that have it, each rating leads to the songs rated with it and
+ * the play counts, kept sorted, lead to the songs played that many times.
+ * The index is kept up to date by listening to the events emitted by the
+ * library, and it is able to answer regular expressions that are literals,
+ * prefixes (literal followed by ".*") or ".*" without looking at every song.
+ * Songs can also be found by their file name or identifier in constant time.
+ *
+ * Songs are kept in the order they were added, which is the order of
+ * the library, since the library only allows additions at the end.
+ *
+ * The index is changed by a single writer at a time, the library, and can
+ * be read by any number of threads meanwhile. Readers see each posting
+ * map as it is while they walk it, without blocking the writer.
+ *
+ * The songs added in bulk are only indexed when the index is first read
+ * after they were added, keeping their place in the library order, so that
+ * adding many songs at once, like the songs of a mapped catalog, neither
+ * decodes their metadata nor fills the index until it is needed.
+ *
+ */
+final class SongIndex implements Listener<SongLibraryEvent> {
+
+	/**
+	 * The indexed text fields of a song
+	 */
+	enum Field {TITLE, ALBUM, GENRE, ARTIST}
+
+	private static final String ANY = ".*";
+	private static final String META_CHARS = "\\^$.|?*+()[]{}";
+	private static final String LINE_TERMINATORS = "\n\r\u0085\u2028\u2029";
+
+	private final Map<Field, NavigableMap<String, NavigableMap<Long, ISong>>> fields;
+	private final List<NavigableMap<Long, ISong>> ratings;
+	private final NavigableMap<Integer, NavigableMap<Long, ISong>> plays;
+	private final Map<String, NavigableMap<Long, ISong>> filenames;
+	private final NavigableMap<Long, ISong> songs;
+	private final Map<SongId, Deque<Posting>> postings;
+	private final Queue<Deferred> deferred;
+	private final Set<ISong> skipped;
+	private long nextSequence;
+	private volatile int multiline;
+
+	/**
+	 * Constructor of an empty index
+	 */
+	SongIndex() {
+		this.fields = new EnumMap<>(Field.class);
+		for(Field field : Field.values())
+			fields.put(field, new ConcurrentSkipListMap<>());
+
+		this.ratings = new ArrayList<>();
+		for(int r = Rate.MIN_RATING; r <= Rate.MAX_RATING; r++)
+			ratings.add(new ConcurrentSkipListMap<>());
+
+		this.plays = new ConcurrentSkipListMap<>();
+		this.filenames = new ConcurrentHashMap<>();
+		this.songs = new ConcurrentSkipListMap<>();
+		this.postings = new ConcurrentHashMap<>();
+		this.deferred = new ConcurrentLinkedQueue<>();
+		this.skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.nextSequence = 0;
+		this.multiline = 0;
+	}
+
+	/**
+	 * Reaction to the events emitted by the library, indexing the added
+	 * songs, or deferring them if they were added in bulk, forgetting the
+	 * removed ones and moving the rated and played ones
+	 */
+	@Override
+	public synchronized void processEvent(SongLibraryEvent e) {
+		if(e instanceof SongAddedLibraryEvent)
+			index(e.getSong(), nextSequence++);
+		else if(e instanceof SongRemovedLibraryEvent)
+			unindex(e.getSong());
+		else if(e instanceof SongsAddedLibraryEvent)
+			defer(e.getSongs());
+		else if(e instanceof SongsRemovedLibraryEvent)
+			e.getSongs().forEach(this::unindex);
+		else if(e instanceof SongRatedLibraryEvent)
+			rerate(e.getSong());
+		else if(e instanceof SongPlayedLibraryEvent)
+			replay(e.getSong());
+	}
+
+	/**
+	 * Returns the songs that match with the given regular expression, in
+	 * library order, if the expression can be answered by the index
+	 *
+	 * @param regexp the regular expression to be used
+	 * @requires regexp != null
+	 * @return the matching songs, or null if the index cannot answer regexp
+	 */
+	List<ISong> lookup(String regexp) {
+		Stream<ISong> matches = stream(regexp);
+		return matches == null ? null : matches.collect(Collectors.toCollection(ArrayList::new));
+	}
+
+	/**
+	 * Returns a lazy stream of the songs that match with the given regular
+	 * expression, in library order, if the expression can be answered by
+	 * the index. The postings of the different fields and values are merged
+	 * as the stream is consumed, so taking the first songs does not read the
+	 * postings of the later ones. Since "." does not match line terminators, ".*" and
+	 * prefixes are only answered while no indexed value has one.
+	 *
+	 * The stream must be consumed before the library changes.
+	 *
+	 * @param regexp the regular expression to be used
+	 * @requires regexp != null
+	 * @return the stream of matching songs, or null if the index cannot answer regexp
+	 */
+	Stream<ISong> stream(String regexp) {
+
+		catchUp();
+		List<NavigableMap<Long, ISong>> merged = new ArrayList<>();
+
+		if(isLiteral(regexp)) {
+			for(Field field : Field.values())
+				merged.add(postings(field, regexp));
+			return merge(merged);
+		}
+
+		if(multiline > 0)
+			return null;
+
+		if(regexp.equals(ANY))
+			return songs.values().stream();
+
+		if(regexp.endsWith(ANY) && isLiteral(regexp.substring(0, regexp.length() - ANY.length()))) {
+			String prefix = regexp.substring(0, regexp.length() - ANY.length());
+			for(Field field : Field.values())
+				merged.addAll(prefixPostings(field, prefix));
+			return merge(merged);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Auxiliary method that returns a lazy stream of the songs of the given
+	 * postings, by library order and without repetitions, merging them as
+	 * the stream is consumed
+	 */
+	private static Stream<ISong> merge(List<NavigableMap<Long, ISong>> postings) {
+
+		if(postings.size() == 1)
+			return postings.get(0).values().stream();
+
+		PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+		for(NavigableMap<Long, ISong> termPostings : postings) {
+			Cursor cursor = new Cursor(termPostings.entrySet().iterator());
+			if(cursor.advance())
+				cursors.add(cursor);
+		}
+
+		Iterator<ISong> songs = new Iterator<ISong>() {
+
+			private long last = -1;
+
+			@Override
+			public boolean hasNext() {
+				while(!cursors.isEmpty() && cursors.peek().sequence <= last)
+					skip();
+				return !cursors.isEmpty();
+			}
+
+			@Override
+			public ISong next() {
+				if(!hasNext())
+					throw new NoSuchElementException();
+				Cursor cursor = cursors.peek();
+				ISong song = cursor.song;
+				last = cursor.sequence;
+				skip();
+				return song;
+			}
+
+			private void skip() {
+				Cursor cursor = cursors.poll();
+				if(cursor.advance())
+					cursors.add(cursor);
+			}
+		};
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(songs, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Returns all the indexed songs, by library order
+	 *
+	 * @return the indexed songs, by the order they were added
+	 */
+	NavigableMap<Long, ISong> all() {
+		catchUp();
+		return songs;
+	}
+
+	/**
+	 * Returns the songs whose field has exactly the given value
+	 *
+	 * @param field the field
+	 * @param value the value of the field
+	 * @return the songs with that value, by library order
+	 */
+	NavigableMap<Long, ISong> postings(Field field, String value) {
+		catchUp();
+		NavigableMap<Long, ISong> termPostings = fields.get(field).get(value);
+		return termPostings == null ? new TreeMap<>() : termPostings;
+	}
+
+	/**
+	 * Returns the postings of the values of the field that start with the
+	 * given prefix
+	 *
+	 * @param field the field
+	 * @param prefix the prefix of the values
+	 * @return the postings of each value of field that starts with prefix
+	 */
+	Collection<NavigableMap<Long, ISong>> prefixPostings(Field field, String prefix) {
+		catchUp();
+		NavigableMap<String, NavigableMap<Long, ISong>> terms = fields.get(field);
+		String successor = successor(prefix);
+		return successor == null ? terms.tailMap(prefix, true).values() : terms.subMap(prefix, true, successor, false).values();
+	}
+
+	/**
+	 * Returns the songs with the given file name
+	 *
+	 * @param filename the file name
+	 * @return the songs with that file name, by library order
+	 */
+	NavigableMap<Long, ISong> filenamePostings(String filename) {
+		catchUp();
+		NavigableMap<Long, ISong> filenamePostings = filenames.get(filename);
+		return filenamePostings == null ? new TreeMap<>() : filenamePostings;
+	}
+
+	/**
+	 * Returns the song with the given identifier
+	 *
+	 * @param id the identifier of the song
+	 * @return the indexed song with that identifier, or null if there is none
+	 */
+	ISong song(SongId id) {
+		catchUp();
+		Deque<Posting> songPostings = postings.get(id);
+		Posting posting = songPostings == null ? null : songPostings.peek();
+		return posting == null ? null : songs.get(posting.sequence);
+	}
+
+	/**
+	 * Returns the songs with the given rating
+	 *
+	 * @param rating the rating
+	 * @requires Rate.MIN_RATING <= rating <= Rate.MAX_RATING
+	 * @return the songs with that rating, by library order
+	 */
+	NavigableMap<Long, ISong> ratingPostings(int rating) {
+		catchUp();
+		return ratingMap(rating);
+	}
+
+	/**
+	 * Returns the songs of each play count, by increasing play count
+	 *
+	 * @return the songs of each play count, each by library order
+	 */
+	NavigableMap<Integer, NavigableMap<Long, ISong>> playedPostings() {
+		catchUp();
+		return plays;
+	}
+
+	/**
+	 * Indexes the songs that were added in bulk and not indexed yet. A
+	 * batch leaves the queue only once it is indexed, so readers that find
+	 * the queue empty never see the index half done
+	 */
+	private void catchUp() {
+
+		if(deferred.isEmpty())
+			return;
+
+		synchronized(this) {
+			for(Deferred batch = deferred.peek(); batch != null; batch = deferred.peek()) {
+				for(int i = 0; i < batch.songs.size(); i++) {
+					ISong song = batch.songs.get(i);
+					if(!skipped.remove(song))
+						index(song, batch.first + i);
+				}
+				deferred.poll();
+			}
+			skipped.clear();
+		}
+	}
+
+	/**
+	 * Reserves the positions of the given songs in the index, leaving them
+	 * to be indexed when the index is read
+	 *
+	 * @param batch the songs added in bulk
+	 */
+	private void defer(List<ISong> batch) {
+		deferred.add(new Deferred(nextSequence, batch));
+		nextSequence += batch.size();
+	}
+
+	/**
+	 * Auxiliary method that returns the postings of the given rating
+	 */
+	private NavigableMap<Long, ISong> ratingMap(int rating) {
+		return ratings.get(rating - Rate.MIN_RATING);
+	}
+
+	/**
+	 * Adds the given song to the index in the given position
+	 *
+	 * @param song the song to be indexed
+	 * @param sequence the position of the song in the index
+	 */
+	private void index(ISong song, long sequence) {
+
+		Posting posting = new Posting(sequence, ratingOf(song), song.getTimesPlayed());
+		postings.computeIfAbsent(song.getId(), id -> new ConcurrentLinkedDeque<>()).push(posting);
+		songs.put(posting.sequence, song);
+		ratingMap(posting.rating).put(posting.sequence, song);
+		addPlayed(posting, song);
+		if(song.getFilename() != null)
+			filenames.computeIfAbsent(song.getFilename(), f -> new ConcurrentSkipListMap<>()).put(posting.sequence, song);
+
+		for(Field field : Field.values()) {
+			for(String term : termsOf(song, field)) {
+				fields.get(field).computeIfAbsent(term, t -> new ConcurrentSkipListMap<>()).put(posting.sequence, song);
+				if(hasLineTerminator(term))
+					multiline++;
+			}
+		}
+	}
+
+	/**
+	 * Removes the given song from the index, if it is there
+	 *
+	 * @param song the song to be removed
+	 */
+	private void unindex(ISong song) {
+
+		Deque<Posting> songPostings = postings.get(song.getId());
+		if(songPostings == null) {
+			//a deferred song is left out when the index catches up
+			if(!deferred.isEmpty())
+				skipped.add(song);
+			return;
+		}
+
+		Posting posting = songPostings.pop();
+		if(songPostings.isEmpty())
+			postings.remove(song.getId());
+		songs.remove(posting.sequence);
+		ratingMap(posting.rating).remove(posting.sequence);
+		removePlayed(posting);
+
+		NavigableMap<Long, ISong> filenamePostings = filenames.get(song.getFilename());
+		if(filenamePostings != null) {
+			filenamePostings.remove(posting.sequence);
+			if(filenamePostings.isEmpty())
+				filenames.remove(song.getFilename());
+		}
+
+		for(Field field : Field.values()) {
+			NavigableMap<String, NavigableMap<Long, ISong>> terms = fields.get(field);
+			for(String term : termsOf(song, field)) {
+				NavigableMap<Long, ISong> termPostings = terms.get(term);
+				if(termPostings != null) {
+					termPostings.remove(posting.sequence);
+					if(termPostings.isEmpty())
+						terms.remove(term);
+				}
+				if(hasLineTerminator(term))
+					multiline--;
+			}
+		}
+	}
+
+	/**
+	 * Moves the given song to the postings of its current rating
+	 *
+	 * @param song the rated song
+	 */
+	private void rerate(ISong song) {
+
+		Deque<Posting> songPostings = postings.get(song.getId());
+		if(songPostings == null)
+			return;
+
+		int rating = ratingOf(song);
+		for(Posting posting : songPostings) {
+			ratingMap(posting.rating).remove(posting.sequence);
+			posting.rating = rating;
+			ratingMap(rating).put(posting.sequence, song);
+		}
+	}
+
+	/**
+	 * Moves the given song to the postings of its current play count
+	 *
+	 * @param song the played song
+	 */
+	private void replay(ISong song) {
+
+		Deque<Posting> songPostings = postings.get(song.getId());
+		if(songPostings == null)
+			return;
+
+		int played = song.getTimesPlayed();
+		for(Posting posting : songPostings) {
+			removePlayed(posting);
+			posting.played = played;
+			addPlayed(posting, song);
+		}
+	}
+
+	/**
+	 * Auxiliary method that adds a song to the postings of the play
+	 * count of its posting
+	 */
+	private void addPlayed(Posting posting, ISong song) {
+		plays.computeIfAbsent(posting.played, p -> new ConcurrentSkipListMap<>()).put(posting.sequence, song);
+	}
+
+	/**
+	 * Auxiliary method that removes a song from the postings of the play
+	 * count of its posting, dropping the play count if no song has it
+	 */
+	private void removePlayed(Posting posting) {
+		NavigableMap<Long, ISong> playedPostings = plays.get(posting.played);
+		if(playedPostings != null) {
+			playedPostings.remove(posting.sequence);
+			if(playedPostings.isEmpty())
+				plays.remove(posting.played);
+		}
+	}
+
+	/**
+	 * Returns the values of a field of a song
+	 *
+	 * @param song the song
+	 * @param field the field
+	 * @return the non null values of the field of the song
+	 */
+	static List<String> termsOf(ISong song, Field field) {
+
+		List<String> songTerms = new ArrayList<>();
+
+		switch(field) {
+		case TITLE:
+			addTerm(songTerms, song.getSongTitle());
+			break;
+		case ALBUM:
+			addTerm(songTerms, song.getAlbum());
+			break;
+		case GENRE:
+			addTerm(songTerms, song.getGenre());
+			break;
+		case ARTIST:
+			if(song.getArtists() != null)
+				for(String artist : song.getArtists())
+					addTerm(songTerms, artist);
+			break;
+		}
+
+		return songTerms;
+	}
+
+	/**
+	 * Auxiliary method that adds a term to a list if it is not null
+	 */
+	private static void addTerm(List<String> songTerms, String term) {
+		if(term != null)
+			songTerms.add(term);
+	}
+
+	/**
+	 * Auxiliary method that returns the rating of a song as an integer
+	 */
+	private static int ratingOf(ISong song) {
+		return song.getRating().getValue();
+	}
+
+	/**
+	 * Checks if a regular expression only matches itself
+	 *
+	 * @param regexp the regular expression
+	 * @return true if regexp has no meta characters, false otherwise
+	 */
+	private static boolean isLiteral(String regexp) {
+
+		for(int i = 0; i < regexp.length(); i++)
+			if(META_CHARS.indexOf(regexp.charAt(i)) >= 0)
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Checks if a value has a line terminator, which "." does not match
+	 */
+	private static boolean hasLineTerminator(String term) {
+
+		for(int i = 0; i < term.length(); i++)
+			if(LINE_TERMINATORS.indexOf(term.charAt(i)) >= 0)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Returns the least string greater than every string that starts with
+	 * the given prefix, or null if there is none
+	 */
+	private static String successor(String prefix) {
+
+		int end = prefix.length();
+		while(end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE)
+			end--;
+
+		if(end == 0)
+			return null;
+
+		return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+	}
+
+	/**
+	 * The current posting of an iterator over the postings of a value,
+	 * ordered by its position in the index
+	 */
+	private static final class Cursor implements Comparable<Cursor> {
+
+		private final Iterator<Map.Entry<Long, ISong>> postings;
+		private long sequence;
+		private ISong song;
+
+		private Cursor(Iterator<Map.Entry<Long, ISong>> postings) {
+			this.postings = postings;
+		}
+
+		/**
+		 * Moves to the next posting, returning false if there is none
+		 */
+		private boolean advance() {
+			if(!postings.hasNext())
+				return false;
+			Map.Entry<Long, ISong> posting = postings.next();
+			sequence = posting.getKey();
+			song = posting.getValue();
+			return true;
+		}
+
+		@Override
+		public int compareTo(Cursor other) {
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * Songs added in bulk that are not indexed yet and the position
+	 * reserved for the first one
+	 */
+	private static final class Deferred {
+
+		private final long first;
+		private final List<ISong> songs;
+
+		private Deferred(long first, List<ISong> songs) {
+			this.first = first;
+			this.songs = songs;
+		}
+	}
+
+	/**
+	 * The position of a song in the index and the rating and play count
+	 * under which it is indexed
+	 */
+	private static final class Posting {
+
+		private final long sequence;
+		private int rating;
+		private int played;
+
+		private Posting(long sequence, int rating, int played) {
+			this.sequence = sequence;
+			this.rating = rating;
+			this.played = played;
+		}
+	}
+}
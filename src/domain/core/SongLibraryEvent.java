@@ -1,5 +1,8 @@
 package domain.core;
 
+import java.util.Collections;
+import java.util.List;
+
 import domain.facade.ISong;
 import util.observer.Event;
 
@@ -30,6 +33,16 @@ public abstract class SongLibraryEvent implements Event{
 		return this.song;
 	}
 
+	/**
+	 * Returns the songs on which the event happened, which is only
+	 * getSong() unless the event is about several songs at once
+	 * 
+	 * @return the songs on which the event happened
+	 */
+	public List<ISong> getSongs() {
+		return Collections.singletonList(this.song);
+	}
+
 	/**
 	 * Returns the library on which the event happened
 	 * @return the library on which the event happened
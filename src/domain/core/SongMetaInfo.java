@@ -1,6 +1,8 @@
 package domain.core;
 
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import util.adts.RegExpMatchable;
 
@@ -15,6 +17,22 @@ import util.adts.RegExpMatchable;
  */
 public record SongMetaInfo(String name, List<String> artists, String genre, String album) implements RegExpMatchable {
 
+	/**
+	 * Returns the metadata with the given values, where the genre, album
+	 * and artists are the shared instances of the given table, so that
+	 * songs with the same values do not keep copies of them
+	 * 
+	 * @param name the name of the song
+	 * @param artists the list of artists of the song
+	 * @param genre the genre of the song
+	 * @param album the album name of the song
+	 * @param symbols the table of the shared values
+	 * @return the metadata with the shared values of symbols
+	 */
+	public static SongMetaInfo of(String name, List<String> artists, String genre, String album, SymbolTable symbols) {
+		return new SongMetaInfo(name, symbols.intern(artists), symbols.intern(genre), symbols.intern(album));
+	}
+
 	/**
 	 * Returns the name of the song
 	 * @return the name of the song
@@ -56,12 +74,25 @@ public record SongMetaInfo(String name, List<String> artists, String genre, Stri
 	 */
 	@Override
 	public boolean matches(String regexp) {
+		return matches(Pattern.compile(regexp).matcher(""));
+	}
+	
+	/**
+	 * Checks if any song data matches the pattern of the given matcher,
+	 * reusing the matcher for every field
+	 *  
+	 * @param matcher the matcher of the regular expression to be used
+	 * @requires matcher != null
+	 * @return whether some data of the song matches with the matcher's pattern
+	 */
+	@Override
+	public boolean matches(Matcher matcher) {
 		
-		if(name.matches(regexp) || genre.matches(regexp) || album.matches(regexp))
+		if(matcher.reset(name).matches() || matcher.reset(genre).matches() || matcher.reset(album).matches())
 			return true;
 		
-		for(String artist : artists)
-			if(artist.matches(regexp))
+		for(int i = 0; i < artists.size(); i++)
+			if(matcher.reset(artists.get(i)).matches())
 				return true;
 		
 		return false;
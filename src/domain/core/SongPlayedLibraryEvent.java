@@ -0,0 +1,19 @@
+package domain.core;
+
+import domain.facade.ISong;
+
+/**
+ * 
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A concrete class of SongLibraryEvent, which represents
+ * a concrete event about a song being played until the end in a library
+ * 
+ */
+public class SongPlayedLibraryEvent extends SongLibraryEvent{
+	
+	    public SongPlayedLibraryEvent(ISong song, MusicLibrary library) {
+	        super(song, library);
+	    }
+}
@@ -0,0 +1,478 @@
+package domain.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import domain.core.SongIndex.Field;
+import domain.facade.ISong;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class whose immutable objects represent queries over the fields of
+ * the songs of a library, written as conditions joined by AND, like
+ *
+ *     artist:"Vicentuna" AND genre:Rock AND rating>=7 AND played>10
+ *
+ * Text conditions use the fields title, album, genre and artist, and
+ * match a value exactly or, if it ends with *, as a prefix. Values with
+ * spaces must be quoted and, inside quotes, \" stands for a quote and \\
+ * for a backslash. A quoted value is a prefix if the * follows the closing
+ * quote, as in title:"Help"*, so title:"Help*" matches the title Help*.
+ * Number conditions use the fields rating and played with one of the
+ * operators =, !=, <, <=, > or >=.
+ *
+ * When executed over the index of a library, a query starts from the
+ * condition that selects the fewest songs and only checks the other
+ * conditions against those songs.
+ *
+ */
+public final class SongQuery {
+
+	private static final String AND = "AND";
+	private static final String ESCAPED = "\"\\";
+
+	private final List<Condition> conditions;
+
+	private SongQuery(List<Condition> conditions) {
+		this.conditions = conditions;
+	}
+
+	/**
+	 * Parses the given query
+	 *
+	 * @param query the text of the query
+	 * @requires query != null
+	 * @return the parsed query
+	 * @throws IllegalArgumentException if query is not well formed
+	 */
+	public static SongQuery parse(String query) {
+		return new Parser(query).parse();
+	}
+
+	/**
+	 * Checks if the given song satisfies every condition of the query
+	 *
+	 * @param song the song to be checked
+	 * @requires song != null
+	 * @return true if song satisfies the query, false otherwise
+	 */
+	public boolean test(ISong song) {
+
+		for(Condition condition : conditions)
+			if(!condition.test(song))
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Returns the songs of the index that satisfy the query, in library order
+	 *
+	 * @param index the index of the library
+	 * @return the songs of the index that satisfy the query
+	 */
+	List<ISong> execute(SongIndex index) {
+
+		Condition driver = null;
+		long driverSize = index.all().size();
+
+		for(Condition condition : conditions) {
+			long size = condition.estimate(index);
+			if(size < driverSize) {
+				driver = condition;
+				driverSize = size;
+			}
+		}
+
+		Collection<ISong> candidates = driver == null ? index.all().values() : driver.candidates(index);
+		List<ISong> matches = new ArrayList<>();
+
+		for(ISong song : candidates) {
+			if(driver == null ? test(song) : testOthers(song, driver))
+				matches.add(song);
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Auxiliary method that checks every condition but the one that
+	 * selected the song
+	 */
+	private boolean testOthers(ISong song, Condition driver) {
+
+		for(Condition condition : conditions)
+			if(condition != driver && !condition.test(song))
+				return false;
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder sb = new StringBuilder();
+
+		for(Condition condition : conditions) {
+			if(sb.length() > 0)
+				sb.append(" AND ");
+			sb.append(condition);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * A condition over one field of a song
+	 */
+	private abstract static class Condition {
+
+		/**
+		 * Checks if the song satisfies the condition
+		 */
+		abstract boolean test(ISong song);
+
+		/**
+		 * Returns the number of songs of the index that may satisfy
+		 * the condition, or Long.MAX_VALUE if the index cannot tell
+		 */
+		abstract long estimate(SongIndex index);
+
+		/**
+		 * Returns the songs of the index that may satisfy the condition,
+		 * in library order
+		 *
+		 * @requires estimate(index) < Long.MAX_VALUE
+		 */
+		abstract Collection<ISong> candidates(SongIndex index);
+	}
+
+	/**
+	 * A condition over a text field, matching a value or a prefix
+	 */
+	private static final class TextCondition extends Condition {
+
+		private final Field field;
+		private final String value;
+		private final boolean prefix;
+
+		private TextCondition(Field field, String value, boolean prefix) {
+			this.field = field;
+			this.value = value;
+			this.prefix = prefix;
+		}
+
+		@Override
+		boolean test(ISong song) {
+
+			for(String term : SongIndex.termsOf(song, field))
+				if(prefix ? term.startsWith(value) : term.equals(value))
+					return true;
+
+			return false;
+		}
+
+		@Override
+		long estimate(SongIndex index) {
+
+			if(!prefix)
+				return index.postings(field, value).size();
+
+			long size = 0;
+			for(NavigableMap<Long, ISong> postings : index.prefixPostings(field, value))
+				size += postings.size();
+
+			return size;
+		}
+
+		@Override
+		Collection<ISong> candidates(SongIndex index) {
+
+			if(!prefix)
+				return index.postings(field, value).values();
+
+			NavigableMap<Long, ISong> merged = new TreeMap<>();
+			for(NavigableMap<Long, ISong> postings : index.prefixPostings(field, value))
+				merged.putAll(postings);
+
+			return merged.values();
+		}
+
+		@Override
+		public String toString() {
+			return field.name().toLowerCase(Locale.ROOT) + ":\"" + escape(value) + (prefix ? "\"*" : "\"");
+		}
+
+		/**
+		 * Auxiliary method that escapes the quotes and backslashes of
+		 * a value, so that it can be quoted
+		 */
+		private static String escape(String value) {
+
+			StringBuilder sb = new StringBuilder(value.length());
+			for(int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if(ESCAPED.indexOf(c) >= 0)
+					sb.append('\\');
+				sb.append(c);
+			}
+
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * A condition comparing a number field with a value
+	 */
+	private static final class NumberCondition extends Condition {
+
+		private final boolean rating;
+		private final Operator operator;
+		private final int value;
+
+		private NumberCondition(boolean rating, Operator operator, int value) {
+			this.rating = rating;
+			this.operator = operator;
+			this.value = value;
+		}
+
+		@Override
+		boolean test(ISong song) {
+			return operator.test(rating ? song.getRating().getValue() : song.getTimesPlayed(), value);
+		}
+
+		@Override
+		long estimate(SongIndex index) {
+
+			long size = 0;
+			for(NavigableMap<Long, ISong> postings : postings(index))
+				size += postings.size();
+
+			return size;
+		}
+
+		@Override
+		Collection<ISong> candidates(SongIndex index) {
+
+			NavigableMap<Long, ISong> merged = new TreeMap<>();
+			for(NavigableMap<Long, ISong> postings : postings(index))
+				merged.putAll(postings);
+
+			return merged.values();
+		}
+
+		/**
+		 * Auxiliary method that returns the postings of the ratings or
+		 * play counts that satisfy the condition
+		 */
+		private List<NavigableMap<Long, ISong>> postings(SongIndex index) {
+
+			List<NavigableMap<Long, ISong>> postings = new ArrayList<>();
+
+			if(rating) {
+				for(int r = Rate.MIN_RATING; r <= Rate.MAX_RATING; r++)
+					if(operator.test(r, value))
+						postings.add(index.ratingPostings(r));
+				return postings;
+			}
+
+			//the play counts are sorted, so only the ones in range are visited
+			NavigableMap<Integer, NavigableMap<Long, ISong>> plays = index.playedPostings();
+			switch(operator) {
+			case EQUAL:
+				NavigableMap<Long, ISong> equal = plays.get(value);
+				if(equal != null)
+					postings.add(equal);
+				break;
+			case DIFFERENT:
+				postings.addAll(plays.headMap(value, false).values());
+				postings.addAll(plays.tailMap(value, false).values());
+				break;
+			case LESS: postings.addAll(plays.headMap(value, false).values()); break;
+			case LESS_EQUAL: postings.addAll(plays.headMap(value, true).values()); break;
+			case GREATER: postings.addAll(plays.tailMap(value, false).values()); break;
+			default: postings.addAll(plays.tailMap(value, true).values());
+			}
+
+			return postings;
+		}
+
+		@Override
+		public String toString() {
+			return (rating ? "rating" : "played") + operator.symbol + value;
+		}
+	}
+
+	/**
+	 * The comparison operators of the number conditions
+	 */
+	private enum Operator {
+
+		LESS_EQUAL("<="), GREATER_EQUAL(">="), DIFFERENT("!="), EQUAL("="), LESS("<"), GREATER(">");
+
+		private final String symbol;
+
+		Operator(String symbol) {
+			this.symbol = symbol;
+		}
+
+		boolean test(int left, int right) {
+			switch(this) {
+			case LESS_EQUAL: return left <= right;
+			case GREATER_EQUAL: return left >= right;
+			case DIFFERENT: return left != right;
+			case EQUAL: return left == right;
+			case LESS: return left < right;
+			default: return left > right;
+			}
+		}
+	}
+
+	/**
+	 * A parser of the text of a query
+	 */
+	private static final class Parser {
+
+		private final String text;
+		private int position;
+
+		private Parser(String text) {
+			this.text = text;
+			this.position = 0;
+		}
+
+		private SongQuery parse() {
+
+			List<Condition> conditions = new ArrayList<>();
+			conditions.add(condition());
+
+			skipSpaces();
+			while(position < text.length()) {
+				if(!text.startsWith(AND, position) && !text.startsWith(AND.toLowerCase(Locale.ROOT), position))
+					throw error("expected " + AND);
+				position += AND.length();
+				conditions.add(condition());
+				skipSpaces();
+			}
+
+			return new SongQuery(Collections.unmodifiableList(conditions));
+		}
+
+		private Condition condition() {
+
+			skipSpaces();
+			int start = position;
+			while(position < text.length() && Character.isLetter(text.charAt(position)))
+				position++;
+			String name = text.substring(start, position).toLowerCase(Locale.ROOT);
+
+			switch(name) {
+			case "title": return textCondition(Field.TITLE);
+			case "album": return textCondition(Field.ALBUM);
+			case "genre": return textCondition(Field.GENRE);
+			case "artist": return textCondition(Field.ARTIST);
+			case "rating": return numberCondition(true);
+			case "played": return numberCondition(false);
+			default: throw error("unknown field '" + name + "'");
+			}
+		}
+
+		private Condition textCondition(Field field) {
+
+			if(position >= text.length() || text.charAt(position) != ':')
+				throw error("expected ':'");
+			position++;
+
+			String value;
+			boolean prefix;
+			if(position < text.length() && text.charAt(position) == '"') {
+				//a * inside the quotes is part of the value
+				value = quoted();
+				prefix = position < text.length() && text.charAt(position) == '*';
+				if(prefix)
+					position++;
+			}
+			else {
+				int start = position;
+				while(position < text.length() && !Character.isWhitespace(text.charAt(position)))
+					position++;
+				value = text.substring(start, position);
+				prefix = value.endsWith("*");
+				if(prefix)
+					value = value.substring(0, value.length() - 1);
+			}
+
+			if(value.isEmpty() && !prefix)
+				throw error("expected a value");
+
+			return new TextCondition(field, value, prefix);
+		}
+
+		/**
+		 * Reads a quoted value, where \" stands for a quote and \\ for
+		 * a backslash
+		 */
+		private String quoted() {
+
+			StringBuilder value = new StringBuilder();
+			position++;
+			while(position < text.length() && text.charAt(position) != '"') {
+				char c = text.charAt(position);
+				if(c == '\\' && position + 1 < text.length() && ESCAPED.indexOf(text.charAt(position + 1)) >= 0)
+					c = text.charAt(++position);
+				value.append(c);
+				position++;
+			}
+
+			if(position >= text.length())
+				throw error("unterminated quote");
+			position++;
+
+			return value.toString();
+		}
+
+		private Condition numberCondition(boolean rating) {
+
+			skipSpaces();
+			Operator operator = null;
+			for(Operator candidate : Operator.values())
+				if(text.startsWith(candidate.symbol, position)) {
+					operator = candidate;
+					break;
+				}
+			if(operator == null)
+				throw error("expected a comparison operator");
+			position += operator.symbol.length();
+
+			skipSpaces();
+			int start = position;
+			if(position < text.length() && text.charAt(position) == '-')
+				position++;
+			while(position < text.length() && Character.isDigit(text.charAt(position)))
+				position++;
+
+			try {
+				return new NumberCondition(rating, operator, Integer.parseInt(text.substring(start, position)));
+			} catch(NumberFormatException e) {
+				throw error("expected a number");
+			}
+		}
+
+		private void skipSpaces() {
+			while(position < text.length() && Character.isWhitespace(text.charAt(position)))
+				position++;
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("Invalid query at position " + position + ": " + message);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package domain.core;
+
+import java.util.List;
+
+import domain.facade.ISong;
+
+/**
+ * 
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A concrete class of SongLibraryEvent, which represents
+ * a concrete event about several songs being added at once
+ * in a library, by the order they were added
+ * 
+ */
+public class SongsAddedLibraryEvent extends SongLibraryEvent {
+	
+	private List<ISong> songs;
+	
+	public SongsAddedLibraryEvent(List<ISong> songs, MusicLibrary library) {
+		super(songs.isEmpty() ? null : songs.get(songs.size() - 1), library);
+		this.songs = songs;
+	}
+	
+	/**
+	 * Returns the songs that were added, by the order they were added
+	 * @return the songs that were added
+	 */
+	@Override
+	public List<ISong> getSongs() {
+		return this.songs;
+	}
+}
@@ -0,0 +1,136 @@
+package domain.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A table of the distinct values of the metadata of the songs of a library,
+ * like genres, albums and artists, where each value has a single shared
+ * String instance and an integer id, given by the order the values were
+ * first seen. Songs whose values come from the same table share their
+ * instances, so equal values are compared by reference, and values can be
+ * grouped by their ids.
+ *
+ * The table can be used by several threads at once.
+ *
+ */
+public final class SymbolTable {
+
+	private final Map<String, Symbol> symbols;
+	private final Map<List<String>, List<String>> lists;
+	private final List<String> values;
+
+	/**
+	 * Constructor of an empty table
+	 */
+	public SymbolTable() {
+		this.symbols = new ConcurrentHashMap<>();
+		this.lists = new ConcurrentHashMap<>();
+		this.values = new ArrayList<>();
+	}
+
+	/**
+	 * Returns the shared instance of the given value, adding it to
+	 * the table if it is not there
+	 *
+	 * @param value the value
+	 * @return the shared instance equal to value, or null if value is null
+	 */
+	public String intern(String value) {
+		return value == null ? null : symbolOf(value).value;
+	}
+
+	/**
+	 * Returns the shared unmodifiable list with the shared instances of the
+	 * given values, so that songs with the same artists share their list
+	 *
+	 * @param values the values
+	 * @return the shared list equal to values, or values if it is or has null
+	 */
+	public List<String> intern(List<String> values) {
+
+		if(values == null)
+			return null;
+
+		List<String> interned = new ArrayList<>(values.size());
+		for(String value : values) {
+			if(value == null)
+				return values;
+			interned.add(intern(value));
+		}
+
+		return lists.computeIfAbsent(Collections.unmodifiableList(interned), l -> l);
+	}
+
+	/**
+	 * Returns the id of the given value, adding it to the table if it is not there
+	 *
+	 * @param value the value
+	 * @requires value != null
+	 * @return the id of value
+	 */
+	public int id(String value) {
+		return symbolOf(value).id;
+	}
+
+	/**
+	 * Returns the value with the given id
+	 *
+	 * @param id the id
+	 * @requires 0 <= id < size()
+	 * @return the shared instance of the value with the given id
+	 */
+	public String value(int id) {
+		synchronized(values) {
+			return values.get(id);
+		}
+	}
+
+	/**
+	 * Returns the number of values of the table
+	 * @return the number of values of the table
+	 */
+	public int size() {
+		synchronized(values) {
+			return values.size();
+		}
+	}
+
+	/**
+	 * Auxiliary method that returns the symbol of a value, creating
+	 * it if needed
+	 */
+	private Symbol symbolOf(String value) {
+
+		Symbol symbol = symbols.get(value);
+		if(symbol != null)
+			return symbol;
+
+		return symbols.computeIfAbsent(value, v -> {
+			synchronized(values) {
+				values.add(v);
+				return new Symbol(v, values.size() - 1);
+			}
+		});
+	}
+
+	/**
+	 * A value of the table and its id
+	 */
+	private static final class Symbol {
+
+		private final String value;
+		private final int id;
+
+		private Symbol(String value, int id) {
+			this.value = value;
+			this.id = id;
+		}
+	}
+}
@@ -1,8 +1,10 @@
 package domain.facade;
 
 import java.util.List;
+import java.util.regex.Matcher;
 
 import domain.core.Rate;
+import domain.core.SongId;
 
 /**
  * @author antonialopes
@@ -12,6 +14,25 @@ import domain.core.Rate;
  */
 public interface ISong {
 
+	/**
+	 * Returns the identifier of the song, given by the library the song was
+	 * first added to. Songs are equal only to themselves, so the identifier
+	 * is what distinguishes them as keys
+	 * 
+	 * @return the song's identifier, or null if it was never added to a library
+	 */
+	SongId getId();
+
+	/**
+	 * Gives the song its identifier, which is done by the library the song 
+	 * is first added to
+	 * 
+	 * @param id the identifier of the song
+	 * @requires id != null
+	 * @throws IllegalStateException if the song already has an identifier
+	 */
+	void setId(SongId id);
+
 	/**
 	 * Increments the number of times the song was played
 	 */
@@ -92,4 +113,14 @@ public interface ISong {
 	 * @return whether some data of the song matches with the given regexp
 	 */
 	boolean matches(String regexp);
+	
+	/**
+	 * Checks if any song data matches the pattern of the given matcher,
+	 * which can be reused between songs
+	 *  
+	 * @param matcher the matcher of the regular expression to be used
+	 * @requires matcher != null
+	 * @return whether some data of the song matches with the matcher's pattern
+	 */
+	boolean matches(Matcher matcher);
 }
\ No newline at end of file
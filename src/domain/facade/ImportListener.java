@@ -0,0 +1,33 @@
+package domain.facade;
+
+import java.nio.file.Path;
+
+/**
+ * 
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A listener of the progress of the import of a folder of songs into
+ * a library. Its methods are called on the thread that is importing the
+ * folder, by the order of the files
+ * 
+ */
+public interface ImportListener {
+	
+	/**
+	 * Informs that more files of the folder have been handled
+	 * 
+	 * @param handled the number of files handled so far, added or not
+	 * @param found the number of files found so far in the folder
+	 */
+	void progress(int handled, int found);
+	
+	/**
+	 * Informs that a file could not be imported
+	 * 
+	 * @param file the file that could not be imported
+	 * @param cause the reason why the file could not be imported
+	 */
+	void failed(Path file, Exception cause);
+	
+}
@@ -1,6 +1,19 @@
 package domain.facade;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+import domain.core.ID3TagMetaInfoExtractor;
+import domain.core.MetaInfoCache;
 import domain.core.MusicLibrary;
+import domain.persistence.LibraryJournal;
+import domain.persistence.LibrarySnapshot;
 import domain.playlists.PlaylistList;
 
 /**
@@ -13,10 +26,21 @@ import domain.playlists.PlaylistList;
  */
 public class LEITunes {
 	
+	private static final String METAINFO_CACHE = "metainfo.cache";
+	private static final String LIBRARY_SNAPSHOT = "library.snapshot";
+	private static final String LIBRARY_JOURNAL = "library.journal";
+	private static final long JOURNAL_SYNC_INTERVAL_MILLIS = 50;
+	private static final long JOURNAL_COMPACTION_SIZE = 4L << 20;
+	
 	private MusicLibrary library;
 	private PlaylistList playlists;
 	private PlaylistListController plController;
 	private MusicLibraryController msController;
+	private MetaInfoCache metaInfoCache;
+	private LibraryJournal journal;
+	private ExecutorService checkpointer;
+	private AtomicBoolean checkpointPending;
+	private Path dataFolder;
 	
 	/**
 	 * Constructor of the object
@@ -27,6 +51,128 @@ public class LEITunes {
 		this.plController = new PlaylistListController(playlists, library);
 		this.msController = new MusicLibraryController(library);
 	}
+	
+	/**
+	 * Constructor of the object that keeps its data in the given folder,
+	 * so that the library and its playlists are restored as they were when
+	 * last saved, and the metadata of the music files that did not change 
+	 * is not parsed again in the next launches. The changes made to the 
+	 * library since the last snapshot are kept in a journal, that is 
+	 * replayed on top of the snapshot and then folded into it. The journal
+	 * is also folded into the snapshot, by a background thread, whenever it
+	 * grows too large
+	 * 
+	 * @param dataFolder the folder where the data is kept
+	 * @throws IOException if the stored library cannot be read
+	 */
+	public LEITunes(Path dataFolder) throws IOException {
+		this.dataFolder = dataFolder;
+		this.metaInfoCache = MetaInfoCache.load(dataFolder.resolve(METAINFO_CACHE), ID3TagMetaInfoExtractor::new);
+		this.library = new MusicLibrary();
+		this.playlists = new PlaylistList(library);
+		this.plController = new PlaylistListController(playlists, library);
+		this.msController = new MusicLibraryController(library, metaInfoCache::extract);
+		
+		Files.createDirectories(dataFolder);
+		Path snapshot = dataFolder.resolve(LIBRARY_SNAPSHOT);
+		if(Files.exists(snapshot))
+			LibrarySnapshot.read(snapshot, library, playlists);
+		
+		Path journalFile = dataFolder.resolve(LIBRARY_JOURNAL);
+		LibraryJournal.replay(journalFile, library);
+		this.journal = new LibraryJournal(journalFile, JOURNAL_SYNC_INTERVAL_MILLIS);
+		if(journal.size() > 0)
+			compact();
+		library.registerSynchronousListener(journal);
+		
+		this.checkpointPending = new AtomicBoolean();
+		this.checkpointer = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "library-checkpoint");
+			thread.setDaemon(true);
+			return thread;
+		});
+		library.registerSynchronousListener(e -> {
+			if(journal.size() > JOURNAL_COMPACTION_SIZE && checkpointPending.compareAndSet(false, true))
+				checkpointer.execute(this::checkpointInBackground);
+		});
+	}
+	
+	/**
+	 * Folds the journal into the snapshot if the journal grew too large.
+	 * Must not be called while the library is emitting an event
+	 * 
+	 * @throws IOException if the data cannot be written
+	 */
+	public void checkpoint() throws IOException {
+		if(journal != null && journal.size() > JOURNAL_COMPACTION_SIZE)
+			compact();
+	}
+	
+	/**
+	 * Stores the data kept in the data folder, if there is one. The
+	 * metadata of the files that were deleted is left out of the cache
+	 * 
+	 * @throws IOException if the data cannot be written
+	 */
+	public void save() throws IOException {
+		if(dataFolder != null) {
+			metaInfoCache.prune();
+			metaInfoCache.save(dataFolder.resolve(METAINFO_CACHE));
+			compact();
+		}
+	}
+	
+	/**
+	 * Stores the data kept in the data folder, if there is one, and
+	 * closes its journal
+	 * 
+	 * @throws IOException if the data cannot be written
+	 */
+	public void close() throws IOException {
+		if(checkpointer != null) {
+			checkpointer.shutdown();
+			try {
+				checkpointer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		save();
+		if(journal != null)
+			journal.close();
+	}
+	
+	/**
+	 * Writes a new snapshot of the library, once its playlists got every
+	 * event, and discards the journal, whose changes are now in the snapshot.
+	 * The library does not change meanwhile, so no change can reach the
+	 * journal without reaching the snapshot
+	 */
+	private void compact() throws IOException {
+		Lock lock = library.writeLock();
+		lock.lock();
+		try {
+			library.flush();
+			LibrarySnapshot.write(dataFolder.resolve(LIBRARY_SNAPSHOT), library, playlists);
+			journal.truncate();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Folds the journal into the snapshot on the checkpoint thread, out of
+	 * the change to the library that made the journal grow too large
+	 */
+	private void checkpointInBackground() {
+		try {
+			checkpoint();
+		} catch (IOException e) {
+			System.err.println("Could not fold the library journal into the snapshot: " + e);
+		} finally {
+			checkpointPending.set(false);
+		}
+	}
 
 	/**
 	 * Returns the controller to the PlaylistList
@@ -1,17 +1,21 @@
 package domain.facade;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import com.mpatric.mp3agic.InvalidDataException;
 import com.mpatric.mp3agic.Mp3File;
 import com.mpatric.mp3agic.UnsupportedTagException;
 
 import domain.core.IMetaInfoExtractor;
-import domain.core.MP3agicMetaInfoExtractor;
+import domain.core.ID3TagMetaInfoExtractor;
 import domain.core.MusicLibrary;
 import domain.core.Song;
 import domain.core.SongMetaInfo;
+import domain.persistence.MappedSongCatalog;
 
 /**
  * 
@@ -24,14 +28,39 @@ import domain.core.SongMetaInfo;
  */
 public class MusicLibraryController {
 	
+	private static final ImportListener SILENT = new ImportListener() {
+		
+		@Override
+		public void progress(int handled, int found) {
+			// nothing to report
+		}
+		
+		@Override
+		public void failed(Path file, Exception cause) {
+			// the file is skipped
+		}
+	};
+	
 	private MusicLibrary library;
+	private Function<String, IMetaInfoExtractor> extractors;
 	
 	/**
 	 * Constructor of the object, receives the library to be controlled
 	 * @param library the library to be controlled
 	 */
 	public MusicLibraryController(MusicLibrary library) {
+		this(library, ID3TagMetaInfoExtractor::new);
+	}
+	
+	/**
+	 * Constructor of the object, receives the library to be controlled and
+	 * the function that gives the metadata extractor of a file
+	 * @param library the library to be controlled
+	 * @param extractors the function that gives the metadata extractor of a file
+	 */
+	public MusicLibraryController(MusicLibrary library, Function<String, IMetaInfoExtractor> extractors) {
 		this.library = library;
+		this.extractors = extractors;
 	}
 	
 	/**
@@ -51,12 +80,89 @@ public class MusicLibraryController {
 	 */
 	public void addSong(String filename) {
 			
-		IMetaInfoExtractor extractor = new MP3agicMetaInfoExtractor(filename);
-		SongMetaInfo metainfo = new SongMetaInfo(extractor.getTitle(), extractor.getArtists(), extractor.getGenre(), extractor.getAlbum());
+		IMetaInfoExtractor extractor = extractors.apply(filename);
+		SongMetaInfo metainfo = SongMetaInfo.of(extractor.getTitle(), extractor.getArtists(), extractor.getGenre(), extractor.getAlbum(), library.getSymbols());
 		library.add(new Song(metainfo, filename));
 		
 	}
 
+	/**
+	 * Adds to the controlled library every mp3 file of the given folder, and 
+	 * its sub folders, that is not in the library yet. The metadata of the 
+	 * files is extracted by parallelism threads, while the songs are added 
+	 * by the calling thread in the order the files were found. Files that 
+	 * cannot be imported are skipped without being reported
+	 * 
+	 * @param folder the folder with the mp3 files
+	 * @param parallelism the number of threads that extract metadata
+	 * @requires parallelism > 0
+	 * @return the number of songs added to the library
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	public int importFolder(Path folder, int parallelism) throws InterruptedException {
+		return importFolder(folder, parallelism, SILENT);
+	}
+	
+	/**
+	 * Adds to the controlled library every mp3 file of the given folder, and 
+	 * its sub folders, that is not in the library yet, reporting the progress 
+	 * and the files that cannot be imported to the given listener
+	 * 
+	 * @param folder the folder with the mp3 files
+	 * @param parallelism the number of threads that extract metadata
+	 * @param listener the listener of the progress of the import
+	 * @requires parallelism > 0
+	 * @return the number of songs added to the library
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	public int importFolder(Path folder, int parallelism, ImportListener listener) throws InterruptedException {
+		return new SongImporter(library, extractors, listener).importFolder(folder, parallelism);
+	}
+	
+	/**
+	 * Adds to the controlled library every song of the given catalog file,
+	 * whose metadata is read from the mapped file when it is accessed
+	 * 
+	 * @param catalog the catalog file
+	 * @return the number of songs added to the library
+	 * @throws IOException if the catalog cannot be read
+	 */
+	public int addCatalog(Path catalog) throws IOException {
+		MappedSongCatalog songs = MappedSongCatalog.open(catalog);
+		library.addAll(songs.songs());
+		return songs.size();
+	}
+	
+	/**
+	 * Writes the songs of the controlled library to the given catalog file
+	 * 
+	 * @param catalog the catalog file
+	 * @throws IOException if the catalog cannot be written
+	 */
+	public void writeCatalog(Path catalog) throws IOException {
+		MappedSongCatalog.write(catalog, library.getSongs());
+	}
+	
+	/**
+	 * Returns the song of the library with the given file name, if it exists
+	 * 
+	 * @param filename the file name of the song
+	 * @return the song of the library with the given file name
+	 */
+	public Optional<ISong> findSong(String filename) {
+		return this.library.find(filename);
+	}
+	
+	/**
+	 * Checks if the library already has a song with the given file name
+	 * 
+	 * @param filename the file name of the song
+	 * @return true if the library has a song with the given file name, false otherwise
+	 */
+	public boolean hasSong(String filename) {
+		return this.library.contains(filename);
+	}
+	
 	/**
 	 * If 0≤i<numberOfSongs() selects the song in index i of the library,
 	 * otherwise does nothing
@@ -136,6 +242,52 @@ public class MusicLibraryController {
 		return this.library.getMatches(reexp);
 	}
 	
+	/**
+	 * Returns a iterable structure with the songs of the library that
+	 * satisfy the given query, like artist:"X" AND genre:Rock AND rating>=7
+	 * 
+	 * @param query the query to be used
+	 * @return a iterable structure with the songs of the library that satisfy the query
+	 * @throws IllegalArgumentException if query is not well formed
+	 */
+	public Iterable<ISong> query(String query) {
+		return this.library.query(query);
+	}
+	
+	/**
+	 * Returns a iterable structure with at most limit songs of the library
+	 * that match with the given regular expression, skipping the first
+	 * offset matches
+	 * 
+	 * @param reexp the regular expression to be used
+	 * @param offset the number of matching songs to skip
+	 * @param limit the maximum number of matching songs to return
+	 * @requires offset >= 0 && limit >= 0
+	 * @return a iterable structure with the requested page of the matching songs
+	 */
+	public Iterable<ISong> getMatches(String reexp, int offset, int limit) {
+		return this.library.getMatches(reexp, offset, limit);
+	}
+	
+	/**
+	 * Returns a lazy stream of the songs of the library that match
+	 * with the given regular expression
+	 * 
+	 * @param reexp the regular expression to be used
+	 * @return a stream of the songs of the library that match with the given regular expression
+	 */
+	public Stream<ISong> streamMatches(String reexp) {
+		return this.library.streamMatches(reexp);
+	}
+	
+	/**
+	 * Returns a lazy stream of the songs of the library
+	 * @return a stream of the songs of the library
+	 */
+	public Stream<ISong> streamSongs() {
+		return this.library.streamSongs();
+	}
+	
 	/**
 	 * Returns an iterable structure with the songs of the library
 	 * @return an iterable structure with the songs of the library
@@ -3,9 +3,11 @@ package domain.facade;
 import java.util.Iterator;
 
 import domain.core.MusicLibrary;
+import domain.core.SongQuery;
 import domain.playlists.ManualPlaylist;
 import domain.playlists.Playlist;
 import domain.playlists.PlaylistList;
+import domain.playlists.RuleBasedPlaylist;
 
 /**
  * 
@@ -43,6 +45,23 @@ public class PlaylistListController {
 		this.playlists.add(new ManualPlaylist(name, library));
 	}
 	
+	/**
+	 * Inserts a new RuleBasedPlaylist object to the list of Playlists controlled,
+	 * with at most limit songs of the library that satisfy the given query,
+	 * like genre:Jazz AND rating>=6, sorted by the given order. The newly
+	 * added Playlist becomes the selected one
+	 * 
+	 * @param name the name of the Playlist to be added
+	 * @param rule the query that the songs of the Playlist satisfy
+	 * @param order the order of the songs of the Playlist
+	 * @param limit the maximum number of songs of the Playlist
+	 * @requires limit > 0
+	 * @throws IllegalArgumentException if rule is not well formed
+	 */
+	public void createSmartPlaylist(String name, String rule, RuleBasedPlaylist.Order order, int limit) {
+		this.playlists.add(new RuleBasedPlaylist(name, library, SongQuery.parse(rule), order, limit));
+	}
+	
 	/**
 	 * If 0 ≤ i < size(), it selects the Playlist in the i index,
 	 * otherwise it does nothing
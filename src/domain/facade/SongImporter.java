@@ -0,0 +1,250 @@
+package domain.facade;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import domain.core.IMetaInfoExtractor;
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+
+/**
+ * 
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A pipeline that imports every mp3 file of a folder, and its sub folders,
+ * into a library. A walker thread finds the files and hands them through a
+ * bounded queue to a pool of workers that extract their metadata, while the
+ * importing thread adds the resulting songs to the library, in batches and
+ * by the order the files were found, skipping those already in the library.
+ * 
+ */
+final class SongImporter {
+	
+	private static final String MP3_EXTENSION = ".mp3";
+	private static final int QUEUE_SLOTS_PER_WORKER = 64;
+	private static final int BATCH_SIZE = 512;
+	
+	private final MusicLibrary library;
+	private final Function<String, IMetaInfoExtractor> extractors;
+	private final ImportListener listener;
+	private final AtomicInteger found;
+	
+	/**
+	 * Constructor of the importer
+	 * 
+	 * @param library the library where the songs are added
+	 * @param extractors the function that gives the metadata extractor of a file
+	 * @param listener the listener of the progress of the import
+	 */
+	SongImporter(MusicLibrary library, Function<String, IMetaInfoExtractor> extractors, ImportListener listener) {
+		this.library = library;
+		this.extractors = extractors;
+		this.listener = listener;
+		this.found = new AtomicInteger();
+	}
+	
+	/**
+	 * Imports the mp3 files of the given folder using the given number of workers
+	 * 
+	 * @param folder the folder to be imported
+	 * @param parallelism the number of workers that extract metadata
+	 * @requires parallelism > 0
+	 * @return the number of songs added to the library
+	 * @throws InterruptedException if the importing thread is interrupted
+	 * @throws Error if extracting the metadata of a file failed with an Error
+	 */
+	int importFolder(Path folder, int parallelism) throws InterruptedException {
+		
+		BlockingQueue<Found> files = new ArrayBlockingQueue<>(parallelism * QUEUE_SLOTS_PER_WORKER);
+		BlockingQueue<Extracted> extracted = new LinkedBlockingQueue<>();
+		ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+		
+		Thread walker = new Thread(() -> walk(folder, files, extracted, parallelism), "song-import-walker");
+		walker.setDaemon(true);
+		walker.start();
+		
+		for(int i = 0; i < parallelism; i++)
+			workers.execute(() -> extract(files, extracted));
+		
+		try {
+			return commit(extracted);
+		} finally {
+			walker.interrupt();
+			workers.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Finds the mp3 files of the folder, numbering them by the order they
+	 * are found, and ends with one end mark per worker and the total of files
+	 */
+	private void walk(Path folder, BlockingQueue<Found> files, BlockingQueue<Extracted> extracted, int parallelism) {
+		
+		try {
+			Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+				
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					
+					if(attrs.isRegularFile() && file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(MP3_EXTENSION)) {
+						try {
+							files.put(new Found(found.getAndIncrement(), file));
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return FileVisitResult.TERMINATE;
+						}
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					extracted.add(new Extracted(found.getAndIncrement(), file, null, e));
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			
+			for(int i = 0; i < parallelism; i++)
+				files.put(Found.END);
+			
+		} catch (IOException e) {
+			extracted.add(new Extracted(found.getAndIncrement(), folder, null, e));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		extracted.add(Extracted.end(found.get()));
+	}
+	
+	/**
+	 * Extracts the metadata of the found files until an end mark is taken
+	 */
+	private void extract(BlockingQueue<Found> files, BlockingQueue<Extracted> extracted) {
+		
+		try {
+			for(Found file = files.take(); file != Found.END; file = files.take()) {
+				
+				String filename = file.path.toString();
+				try {
+					IMetaInfoExtractor extractor = extractors.apply(filename);
+					SongMetaInfo metainfo = SongMetaInfo.of(extractor.getTitle(), extractor.getArtists(), extractor.getGenre(), extractor.getAlbum(), library.getSymbols());
+					extracted.add(new Extracted(file.number, file.path, new Song(metainfo, filename), null));
+				} catch (RuntimeException | Error e) {
+					//every file gets a result, or the importing thread would wait for it
+					extracted.add(new Extracted(file.number, file.path, null, e));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Adds the extracted songs to the library by the order their files
+	 * were found, until every found file has been handled
+	 */
+	private int commit(BlockingQueue<Extracted> extracted) throws InterruptedException {
+		
+		Map<Integer, Extracted> pending = new HashMap<>();
+		List<ISong> batch = new ArrayList<>();
+		int total = -1;
+		int next = 0;
+		int added = 0;
+		
+		while(total < 0 || next < total) {
+			
+			Extracted result = extracted.take();
+			if(result.cause instanceof Error)
+				throw (Error) result.cause;
+			
+			if(result.isEnd())
+				total = result.number;
+			else
+				pending.put(result.number, result);
+			
+			for(Extracted ready = pending.remove(next); ready != null; ready = pending.remove(next)) {
+				next++;
+				
+				if(ready.cause != null)
+					listener.failed(ready.path, (Exception) ready.cause);
+				else if(!library.contains(ready.song.getFilename()))
+					batch.add(ready.song);
+				
+				if(batch.size() == BATCH_SIZE) {
+					added += batch.size();
+					library.addAll(batch);
+					batch.clear();
+					listener.progress(next, found.get());
+				}
+			}
+		}
+		
+		added += batch.size();
+		library.addAll(batch);
+		listener.progress(next, total);
+		
+		return added;
+	}
+	
+	/**
+	 * A file found by the walker and its number
+	 */
+	private static final class Found {
+		
+		private static final Found END = new Found(-1, null);
+		
+		private final int number;
+		private final Path path;
+		
+		private Found(int number, Path path) {
+			this.number = number;
+			this.path = path;
+		}
+	}
+	
+	/**
+	 * The song extracted from a file or the reason why it failed. An extracted
+	 * object without path marks the end of the walk, holding the number of
+	 * files found. A file that failed with an Error ends the import
+	 */
+	private static final class Extracted {
+		
+		private final int number;
+		private final Path path;
+		private final Song song;
+		private final Throwable cause;
+		
+		private Extracted(int number, Path path, Song song, Throwable cause) {
+			this.number = number;
+			this.path = path;
+			this.song = song;
+			this.cause = cause;
+		}
+		
+		private static Extracted end(int found) {
+			return new Extracted(found, null, null, null);
+		}
+		
+		private boolean isEnd() {
+			return path == null;
+		}
+	}
+}
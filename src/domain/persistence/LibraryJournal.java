@@ -0,0 +1,462 @@
+package domain.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongAddedLibraryEvent;
+import domain.core.SongLibraryEvent;
+import domain.core.SongMetaInfo;
+import domain.core.SongPlayedLibraryEvent;
+import domain.core.SongRatedLibraryEvent;
+import domain.core.SongRemovedLibraryEvent;
+import domain.core.SongsAddedLibraryEvent;
+import domain.core.SongsRemovedLibraryEvent;
+import domain.core.SymbolTable;
+import domain.facade.ISong;
+import util.observer.Listener;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * An append-only journal of the changes made to a music library since its
+ * last snapshot. The journal listens to the events of the library and
+ * appends a record for each change to an in memory buffer, which a writer
+ * thread appends to the file and forces to the disk at most once per sync
+ * interval, so that many changes share the cost of a single write (group
+ * commit). With a sync interval of 0 every change is written and forced
+ * before the event returns.
+ *
+ * Records identify the songs by their file name and hold the resulting
+ * values of the change, so replaying a record that is already in the
+ * snapshot does not change the library. Each record is stored as
+ *
+ *     length, type, data, checksum
+ *
+ * and replay stops at the first incomplete or corrupted record, which can
+ * only be the last one, written when the program stopped.
+ *
+ */
+public final class LibraryJournal implements Listener<SongLibraryEvent>, AutoCloseable {
+
+	private static final byte ADDED = 1;
+	private static final byte REMOVED = 2;
+	private static final byte RATED = 3;
+	private static final byte PLAYED = 4;
+	private static final int MAX_RECORD_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private final long syncIntervalMillis;
+	private final Thread writer;
+	private final CRC32 checksum;
+	private ByteArrayOutputStream pending;
+	private long size;
+	private boolean closed;
+	private IOException failure;
+
+	/**
+	 * Opens the journal of the given file for appending, creating the
+	 * file if it does not exist. An incomplete or corrupted record at the
+	 * end of the file is discarded
+	 *
+	 * @param file the file of the journal
+	 * @param syncIntervalMillis the maximum time, in milliseconds, that a
+	 * change waits before being written and forced to the disk
+	 * @requires syncIntervalMillis >= 0
+	 * @throws IOException if the file cannot be opened
+	 */
+	public LibraryJournal(Path file, long syncIntervalMillis) throws IOException {
+		long valid = validLength(file);
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.channel.truncate(valid);
+		this.channel.position(valid);
+		this.syncIntervalMillis = syncIntervalMillis;
+		this.checksum = new CRC32();
+		this.pending = new ByteArrayOutputStream();
+		this.size = channel.size();
+		this.closed = false;
+
+		if(syncIntervalMillis > 0) {
+			this.writer = new Thread(this::writeLoop, "library-journal-writer");
+			this.writer.setDaemon(true);
+			this.writer.start();
+		}
+		else
+			this.writer = null;
+	}
+
+	/**
+	 * Reaction to the events emitted by the library, appending a record
+	 * for each change
+	 *
+	 * @throws UncheckedIOException if the journal could not be written,
+	 * now or by the writer thread, which stops at the first failure
+	 */
+	@Override
+	public void processEvent(SongLibraryEvent e) {
+
+		if(e instanceof SongAddedLibraryEvent)
+			append(ADDED, e.getSong());
+		else if(e instanceof SongsAddedLibraryEvent)
+			e.getSongs().forEach(song -> append(ADDED, song));
+		else if(e instanceof SongRemovedLibraryEvent)
+			append(REMOVED, e.getSong());
+		else if(e instanceof SongsRemovedLibraryEvent)
+			e.getSongs().forEach(song -> append(REMOVED, song));
+		else if(e instanceof SongRatedLibraryEvent)
+			append(RATED, e.getSong());
+		else if(e instanceof SongPlayedLibraryEvent)
+			append(PLAYED, e.getSong());
+		else
+			return;
+
+		if(writer == null) {
+			try {
+				sync();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of the journal, including the
+	 * records that were not written yet
+	 *
+	 * @return the number of bytes of the journal
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * Writes the pending records and forces them to the disk
+	 *
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void sync() throws IOException {
+
+		synchronized(channel) {
+			byte[] records;
+			synchronized(this) {
+				if(failure != null)
+					throw failure;
+				if(pending.size() == 0)
+					return;
+				records = pending.toByteArray();
+				pending = new ByteArrayOutputStream();
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(records);
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			channel.force(false);
+		}
+	}
+
+	/**
+	 * Discards every record of the journal, after its changes were
+	 * stored in a snapshot
+	 *
+	 * @throws IOException if the journal cannot be truncated
+	 */
+	public void truncate() throws IOException {
+		synchronized(channel) {
+			synchronized(this) {
+				pending = new ByteArrayOutputStream();
+				size = 0;
+			}
+			channel.truncate(0);
+			channel.position(0);
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Writes the pending records, stops the writer thread and closes the file
+	 *
+	 * @throws IOException if the journal cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+
+		synchronized(this) {
+			if(closed)
+				return;
+			closed = true;
+			notifyAll();
+		}
+
+		if(writer != null) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		try {
+			sync();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Applies the records of the given journal file to the given library.
+	 * Consecutive additions and removals are applied in a single operation
+	 *
+	 * @param file the file of the journal
+	 * @param library the library where the changes are applied
+	 * @return the number of applied records
+	 * @throws IOException if the file cannot be read
+	 */
+	public static int replay(Path file, MusicLibrary library) throws IOException {
+
+		int applied = 0;
+		List<ISong> added = new ArrayList<>();
+		Set<String> addedFilenames = new HashSet<>();
+		Set<String> removed = new HashSet<>();
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+
+			CRC32 checksum = new CRC32();
+			byte[] record;
+			while((record = readRecord(in, checksum)) != null) {
+
+				DataInputStream data = new DataInputStream(new ByteArrayInputStream(record));
+				byte type = data.readByte();
+				String filename = data.readUTF();
+
+				if(type != ADDED && !added.isEmpty()) {
+					library.addAll(added);
+					added.clear();
+					addedFilenames.clear();
+				}
+				if(type != REMOVED && !removed.isEmpty()) {
+					library.removeAll(song -> removed.contains(song.getFilename()));
+					removed.clear();
+				}
+
+				switch(type) {
+				case ADDED:
+					ISong song = readSong(data, filename, library.getSymbols());
+					if(!library.contains(filename) && addedFilenames.add(filename))
+						added.add(song);
+					break;
+				case REMOVED:
+					removed.add(filename);
+					break;
+				case RATED:
+					Rate rate = new Rate(data.readByte());
+					library.find(filename).ifPresent(s -> library.rate(s, rate));
+					break;
+				case PLAYED:
+					int played = data.readInt();
+					library.find(filename).ifPresent(s -> library.setTimesPlayed(s, played));
+					break;
+				default:
+					throw new IOException("Unknown journal record " + type + ": " + file);
+				}
+
+				applied++;
+			}
+
+		} catch (NoSuchFileException e) {
+			return 0;
+		}
+
+		if(!added.isEmpty())
+			library.addAll(added);
+		if(!removed.isEmpty())
+			library.removeAll(song -> removed.contains(song.getFilename()));
+
+		return applied;
+	}
+
+	/**
+	 * Returns the number of bytes of the complete and valid records
+	 * at the start of the given journal file
+	 */
+	private static long validLength(Path file) throws IOException {
+
+		long length = 0;
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			CRC32 checksum = new CRC32();
+			byte[] record;
+			while((record = readRecord(in, checksum)) != null)
+				length += record.length + 8;
+		} catch (NoSuchFileException e) {
+			return 0;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Appends the record of a change of the given song to the pending records,
+	 * unless a previous write failed
+	 */
+	private void append(byte type, ISong song) {
+
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		try(DataOutputStream data = new DataOutputStream(record)) {
+			data.writeByte(type);
+			data.writeUTF(song.getFilename());
+			if(type == ADDED)
+				writeSong(data, song);
+			else if(type == RATED)
+				data.writeByte(song.getRating().getValue());
+			else if(type == PLAYED)
+				data.writeInt(song.getTimesPlayed());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		byte[] bytes = record.toByteArray();
+
+		synchronized(this) {
+			if(failure != null)
+				throw new UncheckedIOException(failure);
+			checksum.reset();
+			checksum.update(bytes);
+			writeInt(pending, bytes.length);
+			pending.write(bytes, 0, bytes.length);
+			writeInt(pending, (int) checksum.getValue());
+			size += bytes.length + 8;
+		}
+	}
+
+	/**
+	 * The loop of the writer thread, that writes the pending records once
+	 * per sync interval. The first failure stops the loop and is thrown by
+	 * the next change
+	 */
+	private void writeLoop() {
+
+		while(true) {
+			synchronized(this) {
+				if(closed)
+					return;
+				try {
+					wait(syncIntervalMillis);
+				} catch (InterruptedException e) {
+					return;
+				}
+				if(closed)
+					return;
+			}
+
+			try {
+				sync();
+			} catch (IOException e) {
+				synchronized(this) {
+					failure = e;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads the data of the next record, or returns null if there is no
+	 * complete and valid record
+	 */
+	private static byte[] readRecord(DataInputStream in, CRC32 checksum) throws IOException {
+
+		try {
+			int length = in.readInt();
+			if(length <= 0 || length > MAX_RECORD_SIZE)
+				return null;
+
+			byte[] record = new byte[length];
+			in.readFully(record);
+			int expected = in.readInt();
+
+			checksum.reset();
+			checksum.update(record);
+			return (int) checksum.getValue() == expected ? record : null;
+
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the metadata, rating and play count of a song
+	 */
+	private static void writeSong(DataOutputStream data, ISong song) throws IOException {
+		writeNullable(data, song.getSongTitle());
+		writeNullable(data, song.getGenre());
+		writeNullable(data, song.getAlbum());
+		List<String> artists = song.getArtists() == null ? List.of() : song.getArtists();
+		data.writeInt(artists.size());
+		for(String artist : artists)
+			writeNullable(data, artist);
+		data.writeByte(song.getRating().getValue());
+		data.writeInt(song.getTimesPlayed());
+	}
+
+	/**
+	 * Reads a song written by writeSong
+	 */
+	private static ISong readSong(DataInputStream data, String filename, SymbolTable symbols) throws IOException {
+		String title = readNullable(data);
+		String genre = readNullable(data);
+		String album = readNullable(data);
+		String[] artists = new String[data.readInt()];
+		for(int i = 0; i < artists.length; i++)
+			artists[i] = readNullable(data);
+		Rate rate = new Rate(data.readByte());
+		int played = data.readInt();
+		return new Song(SongMetaInfo.of(title, Arrays.asList(artists), genre, album, symbols), filename, rate, played);
+	}
+
+	/**
+	 * Auxiliary method that writes a string that may be null
+	 */
+	private static void writeNullable(DataOutputStream data, String str) throws IOException {
+		data.writeBoolean(str != null);
+		if(str != null)
+			data.writeUTF(str);
+	}
+
+	/**
+	 * Auxiliary method that reads a string written by writeNullable
+	 */
+	private static String readNullable(DataInputStream data) throws IOException {
+		return data.readBoolean() ? data.readUTF() : null;
+	}
+
+	/**
+	 * Auxiliary method that writes an int, big endian, to a byte stream
+	 */
+	private static void writeInt(ByteArrayOutputStream out, int value) {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+}
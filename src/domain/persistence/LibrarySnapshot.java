@@ -0,0 +1,336 @@
+package domain.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.core.SongQuery;
+import domain.facade.ISong;
+import domain.playlists.AbsPlaylist;
+import domain.playlists.ManualPlaylist;
+import domain.playlists.MostLikedSongsPlaylist;
+import domain.playlists.MostPlayedSongsPlaylist;
+import domain.playlists.MostRecentlyAddedSongsPlaylist;
+import domain.playlists.Playlist;
+import domain.playlists.PlaylistList;
+import domain.playlists.RuleBasedPlaylist;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A versioned binary snapshot of a music library, with the ratings and
+ * play counts of its songs, and of the contents of its playlists.
+ *
+ * Every string is stored once in a dictionary at the start of the file
+ * and referenced by its number, and the playlists reference the songs by
+ * their index in the library, so a snapshot is read in a single
+ * sequential pass. Numbers are stored with a variable length encoding.
+ *
+ *     magic, version
+ *     strings:   count, string...
+ *     songs:     count, (filename, title, genre, album, artists..., rating, played)...
+ *     playlists: count, (kind, name, [rule, order, capacity], song index...)...
+ *
+ * Rule based playlists also store their rule, order and capacity, and
+ * get their songs from the library again when they are read.
+ *
+ */
+public final class LibrarySnapshot {
+
+	public static final int VERSION = 2;
+
+	private static final int MAGIC = 0x4C54534E;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final int MANUAL = 0;
+	private static final int MOST_LIKED = 1;
+	private static final int MOST_RECENTLY_ADDED = 2;
+	private static final int RULE_BASED = 3;
+	private static final int MOST_PLAYED = 4;
+
+	/**
+	 * An utility class should not have public constructors
+	 */
+	private LibrarySnapshot() {
+	}
+
+	/**
+	 * Writes a snapshot of the given library and playlists to the given file.
+	 * The file is only replaced once the snapshot is completely written
+	 *
+	 * @param file the file of the snapshot
+	 * @param library the library to be stored
+	 * @param playlists the playlists of the library to be stored
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path file, MusicLibrary library, PlaylistList playlists) throws IOException {
+
+		Map<String, Integer> strings = new HashMap<>();
+		List<String> dictionary = new ArrayList<>();
+		Map<ISong, Integer> songIndexes = new IdentityHashMap<>();
+		List<ISong> songs = new ArrayList<>();
+
+		//a single copy of the playlists, made under the lock of the list
+		List<Playlist> stored = new ArrayList<>();
+		for(Playlist playlist : playlists)
+			stored.add(playlist);
+
+		for(ISong song : library.getSongs()) {
+			songIndexes.putIfAbsent(song, songs.size());
+			songs.add(song);
+			intern(song.getFilename(), strings, dictionary);
+			intern(song.getSongTitle(), strings, dictionary);
+			intern(song.getGenre(), strings, dictionary);
+			intern(song.getAlbum(), strings, dictionary);
+			for(String artist : artistsOf(song))
+				intern(artist, strings, dictionary);
+		}
+
+		for(Playlist playlist : stored) {
+			intern(playlist.getName(), strings, dictionary);
+			if(playlist instanceof RuleBasedPlaylist)
+				intern(((RuleBasedPlaylist) playlist).getRule().toString(), strings, dictionary);
+		}
+
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+
+				writeVarInt(out, dictionary.size());
+				for(String str : dictionary)
+					out.writeUTF(str);
+
+				writeVarInt(out, songs.size());
+				for(ISong song : songs) {
+					writeString(out, song.getFilename(), strings);
+					writeString(out, song.getSongTitle(), strings);
+					writeString(out, song.getGenre(), strings);
+					writeString(out, song.getAlbum(), strings);
+					List<String> artists = artistsOf(song);
+					writeVarInt(out, artists.size());
+					for(String artist : artists)
+						writeString(out, artist, strings);
+					out.writeByte(song.getRating().getValue());
+					writeVarInt(out, song.getTimesPlayed());
+				}
+
+				writeVarInt(out, stored.size());
+				for(Playlist playlist : stored) {
+					out.writeByte(kindOf(playlist));
+					writeString(out, playlist.getName(), strings);
+					if(playlist instanceof RuleBasedPlaylist) {
+						RuleBasedPlaylist ruled = (RuleBasedPlaylist) playlist;
+						writeString(out, ruled.getRule().toString(), strings);
+						out.writeByte(ruled.getOrder().ordinal());
+						writeVarInt(out, ruled.getCapacity());
+					}
+
+					List<Integer> indexes = new ArrayList<>();
+					for(ISong song : playlist) {
+						Integer index = songIndexes.get(song);
+						if(index != null)
+							indexes.add(index);
+					}
+
+					writeVarInt(out, indexes.size());
+					for(int index : indexes)
+						writeVarInt(out, index);
+				}
+			}
+
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the snapshot of the given file into the given library and
+	 * playlists. The songs are added to the library with their ratings and
+	 * play counts, the automatic playlists get their stored contents and
+	 * the manual playlists are added to the playlists
+	 *
+	 * @param file the file of the snapshot
+	 * @param library the library where the songs are restored
+	 * @param playlists the playlists of library, where the playlists are restored
+	 * @requires library.size() == 0
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	public static void read(Path file, MusicLibrary library, PlaylistList playlists) throws IOException {
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+
+			if(in.readInt() != MAGIC)
+				throw new IOException("Not a library snapshot: " + file);
+			int version = in.readInt();
+			if(version < 1 || version > VERSION)
+				throw new IOException("Unsupported library snapshot version " + version + ": " + file);
+
+			String[] dictionary = new String[readVarInt(in)];
+			for(int i = 0; i < dictionary.length; i++)
+				dictionary[i] = in.readUTF();
+
+			ISong[] songs = new ISong[readVarInt(in)];
+			for(int i = 0; i < songs.length; i++) {
+				String filename = string(dictionary, readVarInt(in));
+				String title = string(dictionary, readVarInt(in));
+				String genre = string(dictionary, readVarInt(in));
+				String album = string(dictionary, readVarInt(in));
+				String[] artists = new String[readVarInt(in)];
+				for(int j = 0; j < artists.length; j++)
+					artists[j] = string(dictionary, readVarInt(in));
+				Rate rate = new Rate(in.readByte());
+				int played = readVarInt(in);
+
+				songs[i] = new Song(SongMetaInfo.of(title, Arrays.asList(artists), genre, album, library.getSymbols()), filename, rate, played);
+			}
+
+			library.addAll(Arrays.asList(songs));
+
+			int playlistCount = readVarInt(in);
+			for(int i = 0; i < playlistCount; i++) {
+				int kind = in.readByte();
+				String name = string(dictionary, readVarInt(in));
+
+				if(kind == RULE_BASED) {
+					SongQuery rule = SongQuery.parse(string(dictionary, readVarInt(in)));
+					RuleBasedPlaylist.Order order = RuleBasedPlaylist.Order.values()[in.readByte()];
+					int capacity = readVarInt(in);
+					//the songs of the playlist are given by its rule
+					int size = readVarInt(in);
+					for(int j = 0; j < size; j++)
+						readVarInt(in);
+					playlists.add(new RuleBasedPlaylist(name, library, rule, order, capacity));
+					continue;
+				}
+
+				List<ISong> contents = new ArrayList<>();
+				int size = readVarInt(in);
+				for(int j = 0; j < size; j++)
+					contents.add(songs[readVarInt(in)]);
+
+				AbsPlaylist playlist = kind == MANUAL ? null : find(playlists, kind);
+				if(playlist == null) {
+					playlist = new ManualPlaylist(name, library);
+					playlists.add(playlist);
+				}
+				playlist.restore(contents);
+			}
+
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("Corrupted library snapshot: " + file, e);
+		}
+	}
+
+	/**
+	 * Auxiliary method that returns the kind of a playlist
+	 */
+	private static int kindOf(Playlist playlist) {
+		if(playlist instanceof MostLikedSongsPlaylist)
+			return MOST_LIKED;
+		if(playlist instanceof MostRecentlyAddedSongsPlaylist)
+			return MOST_RECENTLY_ADDED;
+		if(playlist instanceof RuleBasedPlaylist)
+			return RULE_BASED;
+		if(playlist instanceof MostPlayedSongsPlaylist)
+			return MOST_PLAYED;
+		return MANUAL;
+	}
+
+	/**
+	 * Auxiliary method that returns the automatic playlist of the given kind
+	 */
+	private static AbsPlaylist find(PlaylistList playlists, int kind) {
+
+		Iterator<Playlist> it = playlists.iterator();
+		while(it.hasNext()) {
+			Playlist playlist = it.next();
+			if(kindOf(playlist) == kind && playlist instanceof AbsPlaylist)
+				return (AbsPlaylist) playlist;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Auxiliary method that returns the artists of a song, which may be none
+	 */
+	private static List<String> artistsOf(ISong song) {
+		return song.getArtists() == null ? Collections.emptyList() : song.getArtists();
+	}
+
+	/**
+	 * Auxiliary method that adds a string to the dictionary, if it is not there
+	 */
+	private static void intern(String str, Map<String, Integer> strings, List<String> dictionary) {
+		if(str != null && strings.putIfAbsent(str, dictionary.size()) == null)
+			dictionary.add(str);
+	}
+
+	/**
+	 * Writes the reference to a string of the dictionary, where 0 stands for null
+	 */
+	private static void writeString(DataOutputStream out, String str, Map<String, Integer> strings) throws IOException {
+		writeVarInt(out, str == null ? 0 : strings.get(str) + 1);
+	}
+
+	/**
+	 * Returns the string of the dictionary with the given reference
+	 */
+	private static String string(String[] dictionary, int reference) {
+		return reference == 0 ? null : dictionary[reference - 1];
+	}
+
+	/**
+	 * Writes a non negative number using 7 bits per byte
+	 */
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads a number written by writeVarInt
+	 */
+	private static int readVarInt(DataInputStream in) throws IOException {
+
+		int value = 0;
+		for(int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return value;
+		}
+
+		throw new IOException("Malformed number in library snapshot");
+	}
+}
@@ -0,0 +1,254 @@
+package domain.persistence;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import domain.core.Rate;
+import domain.core.SongId;
+import domain.facade.ISong;
+import util.adts.RegExpMatchable;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A song of a MappedSongCatalog, which only keeps its catalog and its
+ * index in it. The metadata of the song is decoded from the catalog each
+ * time it is accessed, while its rating and number of times played are
+ * read from the catalog until they change, and kept in memory after that.
+ * Like a Song, they can be read by any thread while they change.
+ *
+ */
+final class MappedSong implements ISong, RegExpMatchable {
+
+	private static final int UNCHANGED = -1;
+
+	private final MappedSongCatalog catalog;
+	private final int index;
+	private volatile SongId id;
+	private volatile int playedCounter;
+	private volatile Rate rate;
+
+	/**
+	 * Constructor of the song in the given index of the catalog
+	 *
+	 * @param catalog the catalog of the song
+	 * @param index the index of the song in the catalog
+	 */
+	MappedSong(MappedSongCatalog catalog, int index) {
+		this.catalog = catalog;
+		this.index = index;
+		this.playedCounter = UNCHANGED;
+		this.rate = null;
+	}
+
+	/**
+	 * Returns the identifier of the song, given by the library the song was
+	 * first added to
+	 *
+	 * @return the song's identifier, or null if it was never added to a library
+	 */
+	@Override
+	public SongId getId() {
+		return id;
+	}
+
+	/**
+	 * Gives the song its identifier, which is done by the library the song
+	 * is first added to
+	 *
+	 * @param id the identifier of the song
+	 * @requires id != null
+	 * @throws IllegalStateException if the song already has an identifier
+	 */
+	@Override
+	public synchronized void setId(SongId id) {
+		if(this.id != null)
+			throw new IllegalStateException("The song already has the identifier " + this.id);
+		this.id = id;
+	}
+
+	/**
+	 * Increments the number of times the song was played
+	 */
+	@Override
+	public synchronized void incTimesPlayed() {
+		this.playedCounter = getTimesPlayed() + 1;
+	}
+
+	/**
+	 * Returns the number of times the song was played
+	 *
+	 * @return number of times the song was played
+	 */
+	@Override
+	public int getTimesPlayed() {
+		int timesPlayed = playedCounter;
+		return timesPlayed == UNCHANGED ? catalog.timesPlayed(index) : timesPlayed;
+	}
+
+	/**
+	 * Returns the rating of the song
+	 *
+	 * @return the song's rating
+	 * @ensures \result != null
+	 */
+	@Override
+	public Rate getRating() {
+		Rate rating = rate;
+		return rating == null ? new Rate(catalog.rating(index)) : rating;
+	}
+
+	/**
+	 * Increments the song's rating
+	 * @ensures getRating().equals(\old(getRating().inc())
+	 */
+	@Override
+	public synchronized void incRating() {
+		this.rate = getRating().incRating();
+	}
+
+	/**
+	 * Decrements the song's rating
+	 * @ensures getRating().equals(\old(getRating().dec())
+	 */
+	@Override
+	public synchronized void decRating() {
+		this.rate = getRating().decRating();
+	}
+
+	/**
+	 * Returns the title of the song
+	 *
+	 * @return the song's title
+	 */
+	@Override
+	public String getSongTitle() {
+		return catalog.title(index);
+	}
+
+	/**
+	 * Returns the genre of the song
+	 *
+	 * @return the song's genre
+	 */
+	@Override
+	public String getGenre() {
+		return catalog.genre(index);
+	}
+
+	/**
+	 * Returns the artist list of the song, whose artists are
+	 * decoded when they are accessed
+	 *
+	 * @return the song's artists list
+	 */
+	@Override
+	public List<String> getArtists() {
+		return new Artists();
+	}
+
+	/**
+	 * Returns the album name of the song
+	 *
+	 * @return the song's album name
+	 */
+	@Override
+	public String getAlbum() {
+		return catalog.album(index);
+	}
+
+	/**
+	 * Return the filename of the song
+	 *
+	 * @return the song's filename
+	 */
+	@Override
+	public String getFilename() {
+		return catalog.filename(index);
+	}
+
+	/**
+	 * Checks if any song data matches the given regular expression
+	 *
+	 * @param regexp the regular expression to be used
+	 * @requires regexp != null
+	 * @return whether some data of the song matches with the given regexp
+	 */
+	@Override
+	public boolean matches(String regexp) {
+		return matches(Pattern.compile(regexp).matcher(""));
+	}
+
+	/**
+	 * Checks if any song data matches the pattern of the given matcher,
+	 * decoding the fields of the song only until one of them matches
+	 *
+	 * @param matcher the matcher of the regular expression to be used
+	 * @requires matcher != null
+	 * @return whether some data of the song matches with the matcher's pattern
+	 */
+	@Override
+	public boolean matches(Matcher matcher) {
+
+		if(matches(matcher, getSongTitle()) || matches(matcher, getGenre()) || matches(matcher, getAlbum()))
+			return true;
+
+		int artists = catalog.artistCount(index);
+		for(int i = 0; i < artists; i++)
+			if(matches(matcher, catalog.artist(index, i)))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Auxiliary method that checks if a field, that may be null, matches
+	 */
+	private static boolean matches(Matcher matcher, String field) {
+		return field != null && matcher.reset(field).matches();
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("[");
+		sb.append(getSongTitle());
+		sb.append(", ");
+		sb.append(getAlbum());
+		sb.append(", ");
+		sb.append(getGenre());
+		sb.append(", ");
+		sb.append(getArtists());
+		sb.append("]");
+		sb.append(" --- ");
+		sb.append(getRating());
+		sb.append(" -- ");
+		sb.append(getTimesPlayed());
+
+		return sb.toString();
+	}
+
+	/**
+	 * The list of the artists of the song
+	 */
+	private final class Artists extends AbstractList<String> implements RandomAccess {
+
+		@Override
+		public String get(int i) {
+			if(i < 0 || i >= size())
+				throw new IndexOutOfBoundsException(i);
+			return catalog.artist(index, i);
+		}
+
+		@Override
+		public int size() {
+			return catalog.artistCount(index);
+		}
+	}
+}
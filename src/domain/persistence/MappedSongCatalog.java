@@ -0,0 +1,322 @@
+package domain.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import domain.facade.ISong;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A catalog of songs stored in a file that is mapped into memory, whose
+ * songs only keep their position in the catalog and decode their fields
+ * from the mapped file when they are accessed. Opening a catalog does not
+ * read the songs, and the songs of a catalog take a small and constant
+ * amount of memory, no matter the size of their metadata.
+ *
+ * Every song has a record of fixed size, so a song is found by its index
+ * without reading the ones before it, and every string is stored once:
+ *
+ *     magic, version, song count, string count, artist count
+ *     songs:   (filename, title, genre, album, first artist, artist count, played, rating)...
+ *     artists: string...
+ *     strings: offset..., (length, UTF-8 bytes)...
+ *
+ * Strings are referenced by their number, with -1 standing for null. The
+ * ratings and play counts of the file are the initial ones of the songs,
+ * later changes are only kept in memory. A catalog file is limited to 2GB.
+ *
+ */
+public final class MappedSongCatalog {
+
+	public static final int VERSION = 1;
+
+	private static final int MAGIC = 0x4C54434C;
+	private static final int HEADER_SIZE = 20;
+	private static final int RECORD_SIZE = 32;
+	private static final int NULL = -1;
+
+	private static final int FILENAME = 0;
+	private static final int TITLE = 4;
+	private static final int GENRE = 8;
+	private static final int ALBUM = 12;
+	private static final int FIRST_ARTIST = 16;
+	private static final int ARTIST_COUNT = 20;
+	private static final int PLAYED = 24;
+	private static final int RATING = 28;
+
+	private final MappedByteBuffer buffer;
+	private final int songCount;
+	private final int artistsStart;
+	private final int offsetsStart;
+	private final int stringsStart;
+
+	private MappedSongCatalog(MappedByteBuffer buffer) throws IOException {
+
+		this.buffer = buffer;
+
+		if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a song catalog");
+		if(buffer.getInt(4) != VERSION)
+			throw new IOException("Unsupported song catalog version " + buffer.getInt(4));
+
+		this.songCount = buffer.getInt(8);
+		int stringCount = buffer.getInt(12);
+		int artistCount = buffer.getInt(16);
+
+		long artists = HEADER_SIZE + (long) songCount * RECORD_SIZE;
+		long offsets = artists + (long) artistCount * Integer.BYTES;
+		long strings = offsets + (long) stringCount * Integer.BYTES;
+		if(songCount < 0 || stringCount < 0 || artistCount < 0 || strings > buffer.capacity())
+			throw new IOException("Corrupted song catalog");
+
+		this.artistsStart = (int) artists;
+		this.offsetsStart = (int) offsets;
+		this.stringsStart = (int) strings;
+	}
+
+	/**
+	 * Maps the catalog of the given file into memory
+	 *
+	 * @param file the file of the catalog
+	 * @return the catalog of file
+	 * @throws IOException if the file cannot be mapped or is not a valid catalog
+	 */
+	public static MappedSongCatalog open(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Song catalog too large: " + file);
+			return new MappedSongCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Writes a catalog with the given songs, by their order, to the given
+	 * file. The file is only replaced once the catalog is completely written
+	 *
+	 * @param file the file of the catalog
+	 * @param songs the songs of the catalog
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path file, Iterable<ISong> songs) throws IOException {
+
+		Map<String, Integer> strings = new HashMap<>();
+		List<String> dictionary = new ArrayList<>();
+		List<int[]> records = new ArrayList<>();
+		List<Integer> artists = new ArrayList<>();
+
+		for(ISong song : songs) {
+			List<String> songArtists = song.getArtists() == null ? Collections.emptyList() : song.getArtists();
+			int[] record = {intern(song.getFilename(), strings, dictionary), intern(song.getSongTitle(), strings, dictionary),
+					intern(song.getGenre(), strings, dictionary), intern(song.getAlbum(), strings, dictionary),
+					artists.size(), songArtists.size(), song.getTimesPlayed(), song.getRating().getValue()};
+			for(String artist : songArtists)
+				artists.add(intern(artist, strings, dictionary));
+			records.add(record);
+		}
+
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(records.size());
+				out.writeInt(dictionary.size());
+				out.writeInt(artists.size());
+
+				for(int[] record : records)
+					for(int field : record)
+						out.writeInt(field);
+
+				for(int artist : artists)
+					out.writeInt(artist);
+
+				List<byte[]> encoded = new ArrayList<>(dictionary.size());
+				int offset = 0;
+				for(String str : dictionary) {
+					byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+					encoded.add(bytes);
+					out.writeInt(offset);
+					offset += Integer.BYTES + bytes.length;
+				}
+
+				for(byte[] bytes : encoded) {
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+			}
+
+			if(Files.size(temp) > Integer.MAX_VALUE)
+				throw new IOException("Song catalog too large: " + file);
+
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of songs of the catalog
+	 * @return the number of songs of the catalog
+	 */
+	public int size() {
+		return songCount;
+	}
+
+	/**
+	 * Returns a new song for the given index of the catalog. Songs
+	 * created for the same index are different songs, each with its
+	 * own rating and play count
+	 *
+	 * @param i the index
+	 * @requires 0 <= i < size()
+	 * @return the song in index i
+	 */
+	public ISong get(int i) {
+		return new MappedSong(this, i);
+	}
+
+	/**
+	 * Returns the songs of the catalog, by their order, which are only
+	 * created when they are accessed
+	 *
+	 * @return the songs of the catalog
+	 */
+	public List<ISong> songs() {
+		return new Songs();
+	}
+
+	/**
+	 * Returns the file name of the given song
+	 */
+	String filename(int song) {
+		return string(field(song, FILENAME));
+	}
+
+	/**
+	 * Returns the title of the given song
+	 */
+	String title(int song) {
+		return string(field(song, TITLE));
+	}
+
+	/**
+	 * Returns the genre of the given song
+	 */
+	String genre(int song) {
+		return string(field(song, GENRE));
+	}
+
+	/**
+	 * Returns the album of the given song
+	 */
+	String album(int song) {
+		return string(field(song, ALBUM));
+	}
+
+	/**
+	 * Returns the number of artists of the given song
+	 */
+	int artistCount(int song) {
+		return field(song, ARTIST_COUNT);
+	}
+
+	/**
+	 * Returns the i-th artist of the given song
+	 */
+	String artist(int song, int i) {
+		return string(buffer.getInt(artistsStart + (field(song, FIRST_ARTIST) + i) * Integer.BYTES));
+	}
+
+	/**
+	 * Returns the stored number of times the given song was played
+	 */
+	int timesPlayed(int song) {
+		return field(song, PLAYED);
+	}
+
+	/**
+	 * Returns the stored rating of the given song
+	 */
+	int rating(int song) {
+		return field(song, RATING);
+	}
+
+	/**
+	 * Auxiliary method that reads a field of the record of a song
+	 */
+	private int field(int song, int field) {
+		return buffer.getInt(HEADER_SIZE + song * RECORD_SIZE + field);
+	}
+
+	/**
+	 * Auxiliary method that decodes the string with the given number
+	 */
+	private String string(int reference) {
+
+		if(reference == NULL)
+			return null;
+
+		int position = stringsStart + buffer.getInt(offsetsStart + reference * Integer.BYTES);
+		byte[] bytes = new byte[buffer.getInt(position)];
+		buffer.get(position + Integer.BYTES, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Auxiliary method that adds a string to the dictionary, if it is
+	 * not there, and returns its number
+	 */
+	private static int intern(String str, Map<String, Integer> strings, List<String> dictionary) {
+
+		if(str == null)
+			return NULL;
+
+		Integer reference = strings.putIfAbsent(str, dictionary.size());
+		if(reference != null)
+			return reference;
+
+		dictionary.add(str);
+		return dictionary.size() - 1;
+	}
+
+	/**
+	 * The list of the songs of the catalog
+	 */
+	private final class Songs extends AbstractList<ISong> implements RandomAccess {
+
+		@Override
+		public ISong get(int i) {
+			if(i < 0 || i >= songCount)
+				throw new IndexOutOfBoundsException(i);
+			return MappedSongCatalog.this.get(i);
+		}
+
+		@Override
+		public int size() {
+			return songCount;
+		}
+	}
+}
@@ -1,14 +1,22 @@
 package domain.playlists;
 
 import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import domain.core.MusicLibrary;
 import domain.core.SongLibraryEvent;
 import domain.core.SongRemovedLibraryEvent;
+import domain.core.SongsRemovedLibraryEvent;
 import domain.facade.ISong;
 import domain.player.Player;
 import domain.player.PlayerFactory;
+import util.adts.AbsQListWithSelection;
 import util.adts.ArrayQListWithSelection;
 
 /**
@@ -29,13 +37,27 @@ import util.adts.ArrayQListWithSelection;
  * playlist may be playing (i.e. the play action was performed via the playlist). 
  * A playlist keeps track that a song was played (until the end) through the playlist.
  * 
+ * A playlist can be used by several threads at once, namely by the UI, the player
+ * and the dispatcher of the events of the library, each operation being atomic.
+ * The playlist is never locked while it changes the library, so that the library
+ * can emit its events to the playlist while it is being changed.
+ * 
+ * The playlist keeps the position of each of its songs, so checking if a song
+ * is in the playlist and finding where it is take constant time. A change in the
+ * middle of the playlist only makes the positions after it stale, and they are
+ * refreshed the next time one of them is needed. Removing the first or the last
+ * song keeps every position up to date.
+ * 
  */
 public abstract class AbsPlaylist implements Playlist{
 
 	protected MusicLibrary library;
 	private String name;
-	private ArrayQListWithSelection<ISong> songList;
-	private boolean isPlaying;
+	private AbsQListWithSelection<ISong> songList;
+	private Map<ISong, Integer> positions;
+	private int base;
+	private int valid;
+	private volatile boolean isPlaying;
 	private Player player;
 
 	/**
@@ -45,23 +67,42 @@ public abstract class AbsPlaylist implements Playlist{
 	 * @param library the library 
 	 */
 	protected AbsPlaylist(String name, MusicLibrary library) {
+		this(name, library, new ArrayQListWithSelection<>());
+	}
+	
+	/**
+	 * Constructor of an abstract playlist that keeps its songs in the given list
+	 * 
+	 * @param name the name of the playlist
+	 * @param library the library 
+	 * @param songList the empty list where the songs of the playlist are kept
+	 */
+	protected AbsPlaylist(String name, MusicLibrary library, AbsQListWithSelection<ISong> songList) {
 		this.library = library;
 		this.name = name;
-		this.songList = new ArrayQListWithSelection<>();
+		this.songList = songList;
+		this.positions = new HashMap<>();
+		this.base = 0;
+		this.valid = 0;
 		this.isPlaying = false;
 		this.player = PlayerFactory.INSTANCE.getPlayer();
 		player.addListener(this);
-		library.registerListener(this);
+		library.registerListener(SongRemovedLibraryEvent.class, this);
+		library.registerListener(SongsRemovedLibraryEvent.class, this);
 	}
 	
 	/**
-	 * Returns an iterator for the playlist
+	 * Returns an iterator for the playlist, over the songs that were in
+	 * the playlist when it was called
 	 * 
 	 * @return an iterator for the playlist
 	 */
 	@Override
-	public Iterator<ISong> iterator() {
-		return songList.iterator();
+	public synchronized Iterator<ISong> iterator() {
+		List<ISong> songs = new ArrayList<>(songList.size());
+		for(ISong song : songList)
+			songs.add(song);
+		return songs.iterator();
 	}
 
 	 /**
@@ -70,7 +111,7 @@ public abstract class AbsPlaylist implements Playlist{
      * @return the number of elements in the playlist
      */
 	@Override
-	public int size() {
+	public synchronized int size() {
 		return songList.size();
 	}
 
@@ -81,17 +122,38 @@ public abstract class AbsPlaylist implements Playlist{
 	 * @return the selected song
 	 */
 	@Override
-	public ISong getSelected() {
+	public synchronized ISong getSelected() {
 		return songList.getSelected();
 	}
 
+	/**
+	 * Returns the song in index i of the playlist
+	 * 
+	 * @param i the index
+	 * @requires 0 <= i < size()
+	 * @return the song in index i
+	 */
+	protected synchronized ISong get(int i) {
+		return songList.get(i);
+	}
+
+	/**
+	 * Checks if the given song is in the playlist
+	 * 
+	 * @param song the song
+	 * @return true if song is in the playlist, false otherwise
+	 */
+	protected synchronized boolean contains(ISong song) {
+		return positions.containsKey(song);
+	}
+
 	/**
 	 * Indicates if there is a selected song
 	 * 
 	 * @return True if there is a selected song, False otherwise
 	 */
 	@Override
-	public boolean someSelected() {
+	public synchronized boolean someSelected() {
 		return songList.someSelected();
 	}
 
@@ -102,31 +164,56 @@ public abstract class AbsPlaylist implements Playlist{
 	 * @ensures someSelected() == True
 	 */
 	@Override
-	public boolean add(ISong song) {
+	public synchronized boolean add(ISong song) {
 		
-		int songListSize = songList.size();
-		
-		for(int i = 0; i < songListSize; i++) {
-			if(song.equals(songList.get(i))) {
-				songList.select(i);
-				return false;
-			}
+		if(positions.containsKey(song)) {
+			songList.select(indexOf(song));
+			return false;
 		}
 
+		int size = songList.size();
+		ISong first = size == 0 ? null : songList.get(0);
 		songList.add(song);
 		
+		//a list with a fixed capacity drops its first song when it is full
+		if(songList.size() == size)
+			removedAt(0, first);
+		
+		positions.put(song, songList.size() - 1 + base);
+		if(valid == songList.size() - 1)
+			valid++;
+		
 		return true;
 	}
 
+	/**
+	 * Replaces the songs of the playlist with the given ones, by their
+	 * order, without applying the rules of the playlist. Used to restore
+	 * a playlist that was previously stored
+	 * 
+	 * @param songs the songs of the playlist
+	 * @requires songs are distinct songs of the library
+	 * @ensures !songs.isEmpty() ==> someSelected() == True
+	 */
+	public synchronized void restore(List<ISong> songs) {
+		songList.clear();
+		for(ISong song : songs)
+			songList.add(song);
+		refresh();
+	}
+
 	/**
 	 * If someSelected() == True it removes the selected song of the
 	 * list, otherwise nothing happens
 	 */
 	@Override
-	public boolean remove() {
+	public synchronized boolean remove() {
 		
 		if(songList.someSelected()) {
+			int index = songList.getIndexSelected();
+			ISong song = songList.getSelected();
 			songList.remove();
+			removedAt(index, song);
 			return true;
 		}
 		
@@ -140,7 +227,7 @@ public abstract class AbsPlaylist implements Playlist{
 	 * @requires 0 ≤ i < size()
 	 */
 	@Override
-	public void select(int i) {
+	public synchronized void select(int i) {
 		songList.select(i);
 	}
 
@@ -157,46 +244,15 @@ public abstract class AbsPlaylist implements Playlist{
 	 * 					size() == \old(size()) 
 	 */
 	@Override
-	public boolean moveUpSelected(int i) {
+	public synchronized boolean moveUpSelected(int i) {
 
-		int indexFrom = songList.getIndexSelected();
-		ArrayQListWithSelection<ISong> newSongList = new ArrayQListWithSelection<>();
-		
-		if(i != songList.getIndexSelected()) {
-			if(indexFrom < i) {
-				for(int j = 0; j < songList.size(); j++) {
-		    		
-		    		if(j >= indexFrom && j <= i) {
-		    			if(j == i)
-		    				newSongList.add(songList.get(indexFrom));
-		    			else
-		    				newSongList.add(songList.get(j+1));
-		    		}
-		    		else
-		    			newSongList.add(songList.get(j));
-		    	}
-			}
-			
-			else if(indexFrom > i)
-    			for(int j = 0; j < songList.size(); j++) {
-	    		
-		    		if(j >= i && j <= indexFrom) {
-		    			if(j == i)
-		    				newSongList.add(songList.get(indexFrom));
-		    			else
-		    				newSongList.add(songList.get(j-1));
-		    		}
-		    		else
-		    			newSongList.add(songList.get(j));	
-		    	}
-			
-			this.songList = newSongList;
-			this.songList.select(i);
-			return true;
-		}
-		else
+		int from = songList.getIndexSelected();
+		if(i == from)
 			return false;
- 
+		
+		songList.moveSelected(i);
+		valid = Math.min(valid, Math.min(from, i));
+		return true;
 	}
 
 	/**
@@ -207,7 +263,7 @@ public abstract class AbsPlaylist implements Playlist{
 	 * @ensures 0 <= \return < size()
 	 */
 	@Override
-	public int getIndexSelected() {
+	public synchronized int getIndexSelected() {
 		return songList.getIndexSelected();
 	}
 
@@ -218,7 +274,7 @@ public abstract class AbsPlaylist implements Playlist{
 	 * @requires someSelected() == True
 	 */
 	@Override
-	public void next() {
+	public synchronized void next() {
 		songList.next();
 		
 	}
@@ -230,7 +286,7 @@ public abstract class AbsPlaylist implements Playlist{
 	 * @requires someSelected() == True
 	 */
 	@Override
-	public void previous() {
+	public synchronized void previous() {
 		songList.previous();
 		
 	}
@@ -264,7 +320,7 @@ public abstract class AbsPlaylist implements Playlist{
 	 * @ensures isPlaying()
 	 */
 	@Override
-	public void play() {
+	public synchronized void play() {
 		library.stop();
 		player.load(getSelected().getFilename());
 		player.play();
@@ -291,10 +347,16 @@ public abstract class AbsPlaylist implements Playlist{
 		if(isPlaying()) {
 			
 			if(evt.getNewValue().equals(Player.PlayingState.ENDED)) {
-				getSelected().incTimesPlayed();
-				next();
-				if(someSelected())
-					play();
+				ISong ended;
+				synchronized(this) {
+					ended = getSelected();
+				}
+				library.incTimesPlayed(ended);
+				synchronized(this) {
+					next();
+					if(someSelected())
+						play();
+				}
 			}
 			
 			else if(evt.getNewValue().equals(Player.PlayingState.STOPED))
@@ -307,22 +369,80 @@ public abstract class AbsPlaylist implements Playlist{
 	 * backs up this playlist (can affect the content of the playlist)
 	 */
 	@Override
-	public void processEvent(SongLibraryEvent e) {
+	public synchronized void processEvent(SongLibraryEvent e) {
 		if(e instanceof SongRemovedLibraryEvent) {
 			ISong song = e.getSong();
 			
-			for(int i = 0; i < songList.size(); i++) {
-				if(song.equals(songList.get(i))) {
-					songList.select(i);
-					songList.remove();
-					break;
-				}
+			if(positions.containsKey(song)) {
+				int index = indexOf(song);
+				songList.select(index);
+				songList.remove();
+				removedAt(index, song);
 			}
 		}
+		
+		else if(e instanceof SongsRemovedLibraryEvent) {
+			Set<ISong> removed = new HashSet<>();
+			for(ISong song : e.getSongs())
+				if(positions.remove(song) != null)
+					removed.add(song);
+			
+			if(!removed.isEmpty()) {
+				songList.removeIf(removed::contains);
+				valid = 0;
+			}
+		}
+	}
+
+	/**
+	 * Auxiliary method that returns the index of a song of the playlist,
+	 * refreshing the stale positions if the song is after the first of them
+	 * 
+	 * @requires the song is in the playlist
+	 */
+	private int indexOf(ISong song) {
+		
+		int index = positions.get(song) - base;
+		if(index < valid)
+			return index;
+		
+		for(int i = valid; i < songList.size(); i++)
+			positions.put(songList.get(i), i + base);
+		valid = songList.size();
+		
+		return positions.get(song) - base;
+	}
+	
+	/**
+	 * Auxiliary method that forgets the position of a song removed from the
+	 * given index. Removing the first song moves every other song back by
+	 * one, which is kept in base instead of in their positions
+	 */
+	private void removedAt(int index, ISong song) {
+		
+		positions.remove(song);
+		if(index == 0) {
+			base++;
+			valid = Math.max(0, valid - 1);
+		}
+		else
+			valid = Math.min(valid, index);
+	}
+	
+	/**
+	 * Auxiliary method that computes the position of every song again
+	 */
+	private void refresh() {
+		
+		positions.clear();
+		base = 0;
+		for(int i = 0; i < songList.size(); i++)
+			positions.put(songList.get(i), i);
+		valid = songList.size();
 	}
 
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		
 		StringBuilder sb = new StringBuilder();
 		
@@ -1,6 +1,7 @@
 package domain.playlists;
 
 import domain.core.MusicLibrary;
+import domain.core.Rate;
 import domain.core.SongLibraryEvent;
 import domain.core.SongRatedLibraryEvent;
 import domain.facade.ISong;
@@ -9,57 +10,75 @@ import domain.facade.ISong;
  * @author Gabriel Henriques fc58182
  * @author Guilherme Sousa fc58170
  *
- * A concrete class of SmartPlaylist() where objects represent a smart playlist
- * where the N songs with the highest rating of a determined library are 
- * (where N represents a constant)
+ * A concrete class of RankedPlaylist() where objects represent a smart playlist
+ * where the getCapacity() songs with the highest rating of a determined library
+ * are (N by default), from the highest rating to the lowest
+ *
+ * Every rated song of the library is ranked by its rating, so when the rating
+ * of a song of the playlist decreases, or the song is removed from the library,
+ * the next best rated song takes its place.
  */
-public class MostLikedSongsPlaylist extends SmartPlaylist{
-	
+public class MostLikedSongsPlaylist extends RankedPlaylist{
+
 	/**
 	 * The constructor of a most liked songs playlist
-	 * 
+	 *
 	 * @param library the library that the playlist will use
 	 */
 	public MostLikedSongsPlaylist(MusicLibrary library) {
-		super("Most Liked", library);
+		this(library, N);
+	}
+
+	/**
+	 * The constructor of a most liked songs playlist with at most
+	 * the given number of songs
+	 *
+	 * @param library the library that the playlist will use
+	 * @param capacity the maximum number of songs of the playlist
+	 * @requires capacity > 0
+	 */
+	public MostLikedSongsPlaylist(MusicLibrary library, int capacity) {
+		super("Most Liked", library, capacity);
+		library.registerListener(SongRatedLibraryEvent.class, this);
 	}
-	
+
 	/**
-	 * Used for the automatic inserts that are made on a 
-	 * smart playlist
-	 * 
+	 * Used for the automatic inserts that are made on a
+	 * smart playlist, placing the song by its current rating if it is
+	 * ranked and leaving it out otherwise
+	 *
 	 * @param song the song that will be added
 	 */
 	@Override
-	public void addAutomatic(ISong song) {
-		
-		super.addAutomatic(song);
-		int addedIndex = super.getIndexSelected();
-		
-		int size = super.size();
-		
-		for(int i = 0; i < size - 1; i++) {
-			
-			super.select(i);
-			
-			//sort
-			if(song.getRating().isGreaterThan(super.getSelected().getRating())) {
-				super.select(addedIndex);
-				super.moveUpSelected(i);				
-				break;
-			}	
-		}
-		
-		if(size > N)
-			removeAutomatic(N);
+	public synchronized void addAutomatic(ISong song) {
+		if(isRanked(song))
+			rank(song);
+		else
+			unrank(song);
+	}
+
+	/**
+	 * Returns the rating of the given song
+	 */
+	@Override
+	protected int scoreOf(ISong song) {
+		return song.getRating().getValue();
+	}
+
+	/**
+	 * Every song that was rated above the minimum rating is ranked
+	 */
+	@Override
+	protected boolean isRanked(ISong song) {
+		return song.getRating().getValue() > Rate.MIN_RATING;
 	}
-	
+
 	/**
-	 * Reaction to events, namely those emitted by the music library that 
+	 * Reaction to events, namely those emitted by the music library that
 	 * backs up this playlist (can affect the content of the playlist)
 	 */
 	@Override
-	public void processEvent(SongLibraryEvent e) {
+	public synchronized void processEvent(SongLibraryEvent e) {
 		super.processEvent(e);
 		if(e instanceof SongRatedLibraryEvent) {
 			addAutomatic(e.getSong());
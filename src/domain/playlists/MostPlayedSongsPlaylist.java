@@ -0,0 +1,85 @@
+package domain.playlists;
+
+import domain.core.MusicLibrary;
+import domain.core.SongLibraryEvent;
+import domain.core.SongPlayedLibraryEvent;
+import domain.facade.ISong;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A concrete class of RankedPlaylist() where objects represent a smart playlist
+ * where the getCapacity() songs of a determined library that were played the
+ * most times are (N by default), from the most played to the least
+ *
+ * Every played song of the library is ranked by its number of plays, which
+ * is updated by each play of the song, without scanning the library.
+ */
+public class MostPlayedSongsPlaylist extends RankedPlaylist{
+
+	/**
+	 * The constructor of a most played songs playlist
+	 *
+	 * @param library the library that the playlist will use
+	 */
+	public MostPlayedSongsPlaylist(MusicLibrary library) {
+		this(library, N);
+	}
+
+	/**
+	 * The constructor of a most played songs playlist with at most
+	 * the given number of songs
+	 *
+	 * @param library the library that the playlist will use
+	 * @param capacity the maximum number of songs of the playlist
+	 * @requires capacity > 0
+	 */
+	public MostPlayedSongsPlaylist(MusicLibrary library, int capacity) {
+		super("Most Played", library, capacity);
+		library.registerListener(SongPlayedLibraryEvent.class, this);
+	}
+
+	/**
+	 * Used for the automatic inserts that are made on a
+	 * smart playlist, placing the song by its number of plays if it is
+	 * ranked and leaving it out otherwise
+	 *
+	 * @param song the song that will be added
+	 */
+	@Override
+	public synchronized void addAutomatic(ISong song) {
+		if(isRanked(song))
+			rank(song);
+		else
+			unrank(song);
+	}
+
+	/**
+	 * Returns the number of times the given song was played
+	 */
+	@Override
+	protected int scoreOf(ISong song) {
+		return song.getTimesPlayed();
+	}
+
+	/**
+	 * Every song that was played is ranked
+	 */
+	@Override
+	protected boolean isRanked(ISong song) {
+		return song.getTimesPlayed() > 0;
+	}
+
+	/**
+	 * Reaction to events, namely those emitted by the music library that
+	 * backs up this playlist (can affect the content of the playlist)
+	 */
+	@Override
+	public synchronized void processEvent(SongLibraryEvent e) {
+		super.processEvent(e);
+		if(e instanceof SongPlayedLibraryEvent) {
+			addAutomatic(e.getSong());
+		}
+	}
+}
@@ -1,17 +1,21 @@
 package domain.playlists;
 
+import java.util.List;
+
 import domain.core.MusicLibrary;
 import domain.core.SongAddedLibraryEvent;
 import domain.core.SongLibraryEvent;
+import domain.core.SongsAddedLibraryEvent;
 import domain.facade.ISong;
+import util.adts.RingBufferQListWithSelection;
 
 /**
  * @author Gabriel Henriques fc58182
  * @author Guilherme Sousa fc58170
  *
  * A concrete class of SmartPlaylist() where objects represent a playlist
- * where the N songs that were recently played of a determined library are 
- * (where N represents a constant)
+ * where the getCapacity() songs that were recently added of a determined library are 
+ * (N by default)
  */
 public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist{
 	
@@ -21,7 +25,21 @@ public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist{
 	 * @param library the library that the playlist will use
 	 */
 	protected MostRecentlyAddedSongsPlaylist(MusicLibrary library) {
-		super("Most Recently Added", library);
+		this(library, N);
+	}
+	
+	/**
+	 * Constructor of a most recent added songs playlist with at most the
+	 * given number of songs
+	 * 
+	 * @param library the library that the playlist will use
+	 * @param capacity the maximum number of songs of the playlist
+	 * @requires capacity > 0
+	 */
+	protected MostRecentlyAddedSongsPlaylist(MusicLibrary library, int capacity) {
+		super("Most Recently Added", library, capacity, new RingBufferQListWithSelection<>(capacity));
+		library.registerListener(SongAddedLibraryEvent.class, this);
+		library.registerListener(SongsAddedLibraryEvent.class, this);
 	}
 	
 	/**
@@ -31,11 +49,13 @@ public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist{
 	 * @param song the song that will be added
 	 */
 	@Override
-	public void addAutomatic(ISong song) {
-		super.addAutomatic(song);
+	public synchronized void addAutomatic(ISong song) {
 		
-		if(super.size() > N)
+		//the oldest song leaves first, without shifting the others
+		if(!contains(song) && super.size() == getCapacity())
 			super.removeAutomatic(0);
+		
+		super.addAutomatic(song);
 	}
 	
 	/**
@@ -43,11 +63,17 @@ public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist{
 	 * backs up this playlist (can affect the content of the playlist)
 	 */
 	@Override
-	public void processEvent(SongLibraryEvent e) {
+	public synchronized void processEvent(SongLibraryEvent e) {
 		super.processEvent(e);
 		if(e instanceof SongAddedLibraryEvent) {
 			addAutomatic(e.getSong());
 		}
+		else if(e instanceof SongsAddedLibraryEvent) {
+			//only the last added songs can stay in the playlist
+			List<ISong> added = e.getSongs();
+			for(ISong song : added.subList(Math.max(0, added.size() - getCapacity()), added.size()))
+				addAutomatic(song);
+		}
 	}
 	
 }
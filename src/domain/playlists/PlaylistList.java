@@ -2,6 +2,8 @@ package domain.playlists;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
 
 import domain.core.MusicLibrary;
 import util.adts.AbsQListWithSelection;
@@ -15,6 +17,10 @@ import util.adts.QListWithSelection;
  * QListWithSelection<Playlist> where objects represent a list of playlists
  * of a MusicLibrary. In each moment there can be only one of these playlists 
  * selected
+ * 
+ * The playlists are added and removed under the lock of the list, and the
+ * iterators go over a copy made under that lock, so the list can be stored
+ * by another thread while the UI changes it.
  */
 public class PlaylistList extends AbsQListWithSelection<Playlist> implements QListWithSelection<Playlist> {
 
@@ -30,6 +36,71 @@ public class PlaylistList extends AbsQListWithSelection<Playlist> implements QLi
 		this.isPlaying = false;
 		super.add(new MostLikedSongsPlaylist(library));
 		super.add(new MostRecentlyAddedSongsPlaylist(library));
+		super.add(new MostPlayedSongsPlaylist(library));
+	}
+	
+	/**
+	 * Returns an iterator for the list, over the playlists that were in
+	 * the list when it was called
+	 * 
+	 * @return an iterator for the list
+	 */
+	@Override
+	public synchronized Iterator<Playlist> iterator() {
+		List<Playlist> copy = new ArrayList<>(super.size());
+		Iterator<Playlist> it = super.iterator();
+		while(it.hasNext())
+			copy.add(it.next());
+		return copy.iterator();
+	}
+	
+	/**
+	 * Adds a playlist at the end of the list and makes it selected
+	 * 
+	 * @ensures someSelected() == True
+	 */
+	@Override
+	public synchronized void add(Playlist playlist) {
+		super.add(playlist);
+	}
+	
+	/**
+	 * If someSelected() == True it removes the selected playlist of the
+	 * list, otherwise nothing happens
+	 */
+	@Override
+	public synchronized void remove() {
+		super.remove();
+	}
+	
+	/**
+	 * Moves the selected playlist to index i
+	 * 
+	 * @param i the index where the selected playlist is moved to
+	 * @requires someSelected() && 0 <= i < size()
+	 */
+	@Override
+	public synchronized void moveSelected(int i) {
+		super.moveSelected(i);
+	}
+	
+	/**
+	 * Removes every playlist of the list
+	 */
+	@Override
+	public synchronized void clear() {
+		super.clear();
+	}
+	
+	/**
+	 * Removes every playlist of the list that satisfies the given predicate
+	 * 
+	 * @param filter the predicate of the playlists to be removed
+	 * @return the removed playlists, by the order they had in the list
+	 */
+	@Override
+	public synchronized List<Playlist> removeIf(Predicate<? super Playlist> filter) {
+		return super.removeIf(filter);
 	}
 	
 	/**
@@ -0,0 +1,178 @@
+package domain.playlists;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import domain.core.MusicLibrary;
+import domain.core.SongLibraryEvent;
+import domain.core.SongRemovedLibraryEvent;
+import domain.core.SongsRemovedLibraryEvent;
+import domain.facade.ISong;
+import util.adts.TopK;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * An abstract class of SmartPlaylist() where objects represent a smart playlist
+ * with the getCapacity() best ranked songs of a set of songs of a library, from
+ * the highest score to the lowest, where the score of a song is given by the
+ * subclasses.
+ *
+ * Every song of the set is kept in a ranking, so when a song is placed again,
+ * leaves the set or is removed from the library, only that song is handled
+ * and the next best ranked song takes its place if needed.
+ *
+ * The ranking is updated in logarithmic time and the new place of a song in
+ * the playlist is found by binary search, but the playlist keeps its songs in
+ * an array, so moving a song shifts the ones between its old and new places.
+ * Placing a song takes time linear in getCapacity() in the worst case.
+ */
+public abstract class RankedPlaylist extends SmartPlaylist {
+
+	private final TopK<ISong> ranking;
+
+	/**
+	 * The constructor of a ranked playlist
+	 *
+	 * @param name the name of the playlist
+	 * @param library the library that the playlist will use
+	 * @param capacity the maximum number of songs of the playlist
+	 * @requires capacity > 0
+	 */
+	protected RankedPlaylist(String name, MusicLibrary library, int capacity) {
+		super(name, library, capacity);
+		this.ranking = new TopK<>(capacity);
+	}
+
+	/**
+	 * Returns the score that ranks the given song
+	 *
+	 * @param song the song
+	 * @return the score of song
+	 */
+	protected abstract int scoreOf(ISong song);
+
+	/**
+	 * Checks if the given song of the library belongs in the ranking,
+	 * judging by its current values alone
+	 *
+	 * @param song the song
+	 * @return true if song is ranked by the playlist, false otherwise
+	 */
+	protected abstract boolean isRanked(ISong song);
+
+	/**
+	 * Places the given song in the ranking by its current score,
+	 * adding it to the ranking if it is not there, in O(log n + getCapacity())
+	 * time, where n is the number of ranked songs
+	 *
+	 * @param song the song
+	 */
+	protected void rank(ISong song) {
+
+		if(ranking.contains(song))
+			removeAutomatic(position(song));
+
+		ISong promoted = ranking.remove(song);
+		if(promoted != null)
+			super.addAutomatic(promoted);
+
+		//the song that leaves the top is the last one of the playlist
+		if(ranking.add(song, scoreOf(song)) != null)
+			removeAutomatic(super.size() - 1);
+
+		if(ranking.contains(song))
+			insertAutomatic(song, position(song));
+	}
+
+	/**
+	 * Removes the given song from the ranking, if it is there
+	 *
+	 * @param song the song
+	 */
+	protected void unrank(ISong song) {
+
+		if(ranking.contains(song))
+			removeAutomatic(position(song));
+
+		ISong promoted = ranking.remove(song);
+		if(promoted != null)
+			super.addAutomatic(promoted);
+	}
+
+	/**
+	 * Rebuilds the ranking from the songs of the library that belong in it,
+	 * by their current scores, and fills the playlist with its top. The given
+	 * songs, the stored contents of the playlist, are ranked first, if they
+	 * still belong in the ranking, so they keep their order among the songs
+	 * with the same score
+	 *
+	 * @param songs the songs of the playlist
+	 * @requires songs are distinct songs of the library
+	 */
+	@Override
+	public void restore(List<ISong> songs) {
+
+		//the library is read before the playlist is locked
+		List<ISong> ranked = new ArrayList<>();
+		for(ISong song : library)
+			if(isRanked(song))
+				ranked.add(song);
+
+		synchronized(this) {
+			ranking.clear();
+			for(ISong song : songs)
+				if(isRanked(song))
+					ranking.add(song, scoreOf(song));
+			for(ISong song : ranked)
+				if(!ranking.isRanked(song))
+					ranking.add(song, scoreOf(song));
+			super.restore(ranking.top());
+		}
+	}
+
+	/**
+	 * Reaction to events, namely those emitted by the music library that
+	 * backs up this playlist (can affect the content of the playlist)
+	 */
+	@Override
+	public synchronized void processEvent(SongLibraryEvent e) {
+		super.processEvent(e);
+		if(e instanceof SongRemovedLibraryEvent) {
+			ISong promoted = ranking.remove(e.getSong());
+			if(promoted != null)
+				super.addAutomatic(promoted);
+		}
+		else if(e instanceof SongsRemovedLibraryEvent) {
+			for(ISong song : e.getSongs())
+				ranking.remove(song);
+
+			//the songs that entered the top go after the ones that stayed
+			List<ISong> top = ranking.top();
+			for(int i = super.size(); i < top.size(); i++)
+				super.addAutomatic(top.get(i));
+		}
+	}
+
+	/**
+	 * Auxiliary method that returns the index of the given ranked song in
+	 * the playlist, or where it has to be inserted if it is not there, by
+	 * binary search over the songs of the playlist
+	 */
+	private int position(ISong song) {
+
+		int low = 0;
+		int high = super.size();
+
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(ranking.compare(super.get(middle), song) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+}
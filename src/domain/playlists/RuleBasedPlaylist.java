@@ -0,0 +1,129 @@
+package domain.playlists;
+
+import domain.core.MusicLibrary;
+import domain.core.SongAddedLibraryEvent;
+import domain.core.SongLibraryEvent;
+import domain.core.SongPlayedLibraryEvent;
+import domain.core.SongQuery;
+import domain.core.SongRatedLibraryEvent;
+import domain.core.SongsAddedLibraryEvent;
+import domain.facade.ISong;
+
+/**
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A concrete class of RankedPlaylist() where objects represent a smart playlist
+ * with the getCapacity() songs of a determined library that satisfy a rule,
+ * given by a SongQuery, sorted by their rating or by the number of times they
+ * were played, like
+ *
+ *     genre:Jazz AND rating>=6, sorted by plays, limit 200
+ *
+ * The library is only queried when the playlist is created. Afterwards each
+ * event of the library checks the rule against the song of the event alone.
+ */
+public class RuleBasedPlaylist extends RankedPlaylist {
+
+	/**
+	 * The orders of the songs of a rule based playlist
+	 */
+	public enum Order {
+		RATING, PLAYED
+	}
+
+	private final SongQuery rule;
+	private final Order order;
+
+	/**
+	 * The constructor of a rule based playlist, with the songs of the
+	 * library that already satisfy the rule
+	 *
+	 * @param name the name of the playlist
+	 * @param library the library that the playlist will use
+	 * @param rule the rule that the songs of the playlist satisfy
+	 * @param order the order of the songs of the playlist
+	 * @param capacity the maximum number of songs of the playlist
+	 * @requires capacity > 0
+	 */
+	public RuleBasedPlaylist(String name, MusicLibrary library, SongQuery rule, Order order, int capacity) {
+		super(name, library, capacity);
+		this.rule = rule;
+		this.order = order;
+		library.registerListener(SongAddedLibraryEvent.class, this);
+		library.registerListener(SongsAddedLibraryEvent.class, this);
+		library.registerListener(SongRatedLibraryEvent.class, this);
+		library.registerListener(SongPlayedLibraryEvent.class, this);
+
+		//the events delivered meanwhile wait for the songs that satisfy the rule
+		synchronized(this) {
+			for(ISong song : library.query(rule))
+				rank(song);
+		}
+	}
+
+	/**
+	 * Returns the rule that the songs of the playlist satisfy
+	 *
+	 * @return the rule of the playlist
+	 */
+	public SongQuery getRule() {
+		return rule;
+	}
+
+	/**
+	 * Returns the order of the songs of the playlist
+	 *
+	 * @return the order of the playlist
+	 */
+	public Order getOrder() {
+		return order;
+	}
+
+	/**
+	 * Used for the automatic inserts that are made on a smart playlist,
+	 * placing the song if it satisfies the rule and leaving it out otherwise
+	 *
+	 * @param song the song that will be checked
+	 */
+	@Override
+	public synchronized void addAutomatic(ISong song) {
+		if(rule.test(song))
+			rank(song);
+		else
+			unrank(song);
+	}
+
+	/**
+	 * Returns the rating or number of plays of the given song, by the
+	 * order of the playlist
+	 */
+	@Override
+	protected int scoreOf(ISong song) {
+		return order == Order.RATING ? song.getRating().getValue() : song.getTimesPlayed();
+	}
+
+	/**
+	 * Every song that satisfies the rule is ranked
+	 */
+	@Override
+	protected boolean isRanked(ISong song) {
+		return rule.test(song);
+	}
+
+	/**
+	 * Reaction to events, namely those emitted by the music library that
+	 * backs up this playlist (can affect the content of the playlist)
+	 */
+	@Override
+	public synchronized void processEvent(SongLibraryEvent e) {
+		super.processEvent(e);
+		if(e instanceof SongAddedLibraryEvent || e instanceof SongRatedLibraryEvent || e instanceof SongPlayedLibraryEvent) {
+			addAutomatic(e.getSong());
+		}
+		else if(e instanceof SongsAddedLibraryEvent) {
+			for(ISong song : e.getSongs())
+				addAutomatic(song);
+		}
+	}
+}
@@ -2,6 +2,7 @@ package domain.playlists;
 
 import domain.core.MusicLibrary;
 import domain.facade.ISong;
+import util.adts.AbsQListWithSelection;
 
 /**
  * @author Gabriel Henriques fc58182
@@ -15,14 +16,53 @@ public abstract class SmartPlaylist extends AbsPlaylist{
 	
 	protected static final int N = 5;
 	
+	private final int capacity;
+	
 	/**
-	 * The constructor of a smart playlist
+	 * The constructor of a smart playlist with at most N songs
 	 * 
 	 * @param name the name of the playlist
 	 * @param library the library that the playlist will use
 	 */
 	protected SmartPlaylist(String name, MusicLibrary library) {
+		this(name, library, N);
+	}
+	
+	/**
+	 * The constructor of a smart playlist with at most the given number of songs
+	 * 
+	 * @param name the name of the playlist
+	 * @param library the library that the playlist will use
+	 * @param capacity the maximum number of songs of the playlist
+	 * @requires capacity > 0
+	 */
+	protected SmartPlaylist(String name, MusicLibrary library, int capacity) {
 		super(name, library);
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * The constructor of a smart playlist with at most the given number of
+	 * songs, that keeps its songs in the given list
+	 * 
+	 * @param name the name of the playlist
+	 * @param library the library that the playlist will use
+	 * @param capacity the maximum number of songs of the playlist
+	 * @param songList the empty list where the songs of the playlist are kept
+	 * @requires capacity > 0
+	 */
+	protected SmartPlaylist(String name, MusicLibrary library, int capacity, AbsQListWithSelection<ISong> songList) {
+		super(name, library, songList);
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * Returns the maximum number of songs of the playlist
+	 * 
+	 * @return the maximum number of songs of the playlist
+	 */
+	public int getCapacity() {
+		return capacity;
 	}
 	
 	/**
@@ -46,6 +86,19 @@ public abstract class SmartPlaylist extends AbsPlaylist{
 		super.remove();
 	}
 	
+	/**
+	 * Used for the automatic inserts that are made on a smart
+	 * playlist in a given position
+	 * 
+	 * @param song the song that will be added
+	 * @param index the index where the song will be
+	 * @requires 0 <= index <= size() and song is not in the playlist
+	 */
+	protected void insertAutomatic(ISong song, int index) {
+		super.add(song);
+		super.moveUpSelected(index);
+	}
+	
 	/**
 	 * Doesn't allow to add songs manually to the playlist
 	 */
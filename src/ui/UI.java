@@ -185,8 +185,7 @@ public class UI {
 		RowAction fillSongsLibrary = new RowAction (table, null, 0) {
 			@Override
 			void fillData() {
-				for (ISong s : songsLibraryController.getMatches(".*")) 
-					fillRow (s);
+				songsLibraryController.streamSongs().forEach(s -> fillRow (s));
 			}
 		};
 
@@ -1,7 +1,10 @@
 package util.adts;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * 
@@ -151,6 +154,60 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
 		}
 	}
 
+	/**
+	 * Moves the selected element to index i, shifting by one position the
+	 * elements between its old index and i. The elements are rotated in
+	 * place, so only the elements between both indexes are touched
+	 * 
+	 * @param i the index where the selected element is moved to
+	 * @requires someSelected() && 0 <= i < size()
+	 * @ensures getIndexSelected() == i && size() == \old(size())
+	 */
+	public void moveSelected(int i) {
+		
+		int from = selectedIndex;
+		if(from < i)
+			Collections.rotate(list.subList(from, i + 1), -1);
+		else if(from > i)
+			Collections.rotate(list.subList(i, from + 1), 1);
+		
+		this.selectedIndex = i;
+	}
+
+	/**
+	 * Removes every element of the list, which stops having a
+	 * selected element
+	 */
+	public void clear() {
+		list.clear();
+		this.selectedIndex = -1;
+	}
+
+	/**
+	 * Removes every element of the list that satisfies the given predicate,
+	 * in a single pass over the list. If some element is removed the list
+	 * stops having a selected element
+	 * 
+	 * @param filter the predicate of the elements to be removed
+	 * @return the removed elements, by the order they had in the list
+	 */
+	public List<E> removeIf(Predicate<? super E> filter) {
+		
+		List<E> removed = new ArrayList<>();
+		list.removeIf(e -> {
+			if(filter.test(e)) {
+				removed.add(e);
+				return true;
+			}
+			return false;
+		});
+		
+		if(!removed.isEmpty())
+			this.selectedIndex = -1;
+		
+		return removed;
+	}
+	
 	/**
 	 * Returns the selected element
 	 * 
@@ -1,5 +1,7 @@
 package util.adts;
 
+import java.util.regex.Matcher;
+
 /**
  * @author malopes
  *
@@ -15,4 +17,15 @@ public interface RegExpMatchable {
 	 * @return true if this object matches regexp, false otherwise.
 	 */
 	boolean matches (String regexp);
+	
+	/**
+	 * Checks the match using a matcher of an already compiled regular expression,
+	 * which is reset against each value of this object, so that it can be reused 
+	 * for several objects
+	 * 
+	 * @param matcher a matcher of the regular expression used to check the matches
+	 * @requires matcher != null
+	 * @return true if this object matches the matcher's pattern, false otherwise.
+	 */
+	boolean matches (Matcher matcher);
 }
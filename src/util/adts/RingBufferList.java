@@ -0,0 +1,190 @@
+package util.adts;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A list of elements E with a fixed capacity, stored in a circular array.
+ * The list can start at any slot of the array, so removing the first
+ * element only moves the start of the list instead of shifting the other
+ * elements. Adding and removing at both ends takes constant time, and
+ * elsewhere only the elements on the shorter side of the index are shifted.
+ *
+ * @param <E>
+ */
+public class RingBufferList<E> extends AbstractList<E> implements RandomAccess {
+
+	private final Object[] elements;
+	private int head;
+	private int size;
+
+	/**
+	 * Constructor of an empty list
+	 *
+	 * @param capacity the maximum number of elements of the list
+	 * @requires capacity > 0
+	 */
+	public RingBufferList(int capacity) {
+		this.elements = new Object[capacity];
+		this.head = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the maximum number of elements of the list
+	 *
+	 * @return the maximum number of elements of the list
+	 */
+	public int capacity() {
+		return elements.length;
+	}
+
+	/**
+	 * Checks if the list has as many elements as its capacity
+	 *
+	 * @return true if size() == capacity(), false otherwise
+	 */
+	public boolean isFull() {
+		return size == elements.length;
+	}
+
+	/**
+	 * Returns the number of elements in the list
+	 *
+	 * @return the number of elements in the list
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the element of the list in the given index
+	 *
+	 * @param i the index
+	 * @requires 0 <= i < size()
+	 * @return the element of the list in the given index
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int i) {
+		checkIndex(i, size);
+		return (E) elements[slotOf(i)];
+	}
+
+	/**
+	 * Replaces the element of the list in the given index
+	 *
+	 * @param i the index
+	 * @param e the new element
+	 * @requires 0 <= i < size()
+	 * @return the element that was in the given index
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E set(int i, E e) {
+		checkIndex(i, size);
+		int slot = slotOf(i);
+		E old = (E) elements[slot];
+		elements[slot] = e;
+		return old;
+	}
+
+	/**
+	 * Adds an element in the given index, shifting the elements on the
+	 * shorter side of the index
+	 *
+	 * @param i the index
+	 * @param e the element to be added
+	 * @requires 0 <= i <= size()
+	 * @throws IllegalStateException if the list is full
+	 */
+	@Override
+	public void add(int i, E e) {
+
+		checkIndex(i, size + 1);
+		if(isFull())
+			throw new IllegalStateException("The list is full");
+
+		if(i < size / 2) {
+			head = slotOf(-1);
+			for(int j = 0; j < i; j++)
+				elements[slotOf(j)] = elements[slotOf(j + 1)];
+		}
+		else {
+			for(int j = size; j > i; j--)
+				elements[slotOf(j)] = elements[slotOf(j - 1)];
+		}
+
+		elements[slotOf(i)] = e;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the element of the list in the given index, shifting the
+	 * elements on the shorter side of the index
+	 *
+	 * @param i the index
+	 * @requires 0 <= i < size()
+	 * @return the removed element
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E remove(int i) {
+
+		checkIndex(i, size);
+		E old = (E) elements[slotOf(i)];
+
+		if(i < size / 2) {
+			for(int j = i; j > 0; j--)
+				elements[slotOf(j)] = elements[slotOf(j - 1)];
+			elements[head] = null;
+			head = slotOf(1);
+		}
+		else {
+			for(int j = i; j < size - 1; j++)
+				elements[slotOf(j)] = elements[slotOf(j + 1)];
+			elements[slotOf(size - 1)] = null;
+		}
+
+		size--;
+		modCount++;
+		return old;
+	}
+
+	/**
+	 * Removes every element of the list
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(elements, null);
+		head = 0;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Auxiliary method that returns the slot of the array of an index
+	 * of the list, which may be one before the start of the list
+	 */
+	private int slotOf(int i) {
+		int slot = head + i;
+		if(slot >= elements.length)
+			return slot - elements.length;
+		return slot < 0 ? slot + elements.length : slot;
+	}
+
+	/**
+	 * Auxiliary method that checks an index against a bound
+	 */
+	private static void checkIndex(int i, int bound) {
+		if(i < 0 || i >= bound)
+			throw new IndexOutOfBoundsException(i);
+	}
+}
@@ -0,0 +1,62 @@
+package util.adts;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A concrete class of AbsQListWithSelection<E>, a
+ * list of elements E that allows new elements to be added only
+ * at the end of the list, and has the ability to select one of
+ * the elements of the list at a time. Implements using RingBufferList,
+ * so the list has a fixed capacity and its first element is removed
+ * in constant time, which suits lists of the most recent elements
+ *
+ *
+ * @param <E>
+ */
+public final class RingBufferQListWithSelection<E> extends AbsQListWithSelection<E> {
+
+	private final RingBufferList<E> buffer;
+
+	/**
+	 * Constructor of the object
+	 *
+	 * @param capacity the maximum number of elements of the list
+	 * @requires capacity > 0
+	 */
+	public RingBufferQListWithSelection(int capacity) {
+		this(new RingBufferList<>(capacity));
+	}
+
+	/**
+	 * Auxiliary constructor that keeps the buffer of the list
+	 */
+	private RingBufferQListWithSelection(RingBufferList<E> buffer) {
+		super(buffer);
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Returns the maximum number of elements of the list
+	 *
+	 * @return the maximum number of elements of the list
+	 */
+	public int capacity() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * Adds an element at the end of the list and makes it selected. If
+	 * the list is full its first element is removed
+	 *
+	 * @ensures someSelected() == True && size() <= capacity()
+	 */
+	@Override
+	public void add(E e) {
+		if(buffer.isFull())
+			buffer.remove(0);
+		super.add(e);
+	}
+
+}
@@ -0,0 +1,304 @@
+package util.adts;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A list of elements E that only allows new elements to be added at the
+ * end of the list, where removing an element only marks its slot as removed
+ * (a tombstone) instead of shifting the following elements. The positions of
+ * the elements are found through a Fenwick tree that counts the live slots,
+ * so get, set and remove take logarithmic time. The removed slots are
+ * discarded in a single pass once they outnumber the live ones.
+ *
+ * @param <E>
+ */
+public class TombstoneList<E> extends AbstractList<E> implements RandomAccess {
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MIN_TOMBSTONES_TO_COMPACT = 32;
+
+	private Object[] elements;
+	private boolean[] removed;
+	private int[] tree;
+	private int slots;
+	private int size;
+
+	/**
+	 * Constructor of an empty list
+	 */
+	public TombstoneList() {
+		this.elements = new Object[INITIAL_CAPACITY];
+		this.removed = new boolean[INITIAL_CAPACITY];
+		this.tree = new int[INITIAL_CAPACITY + 1];
+		this.slots = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the number of elements in the list
+	 *
+	 * @return the number of elements in the list
+	 */
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the element of the list in the given index
+	 *
+	 * @param i the index
+	 * @requires 0 <= i < size()
+	 * @return the element of the list in the given index
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int i) {
+		return (E) elements[slotOf(i)];
+	}
+
+	/**
+	 * Replaces the element of the list in the given index
+	 *
+	 * @param i the index
+	 * @param e the new element
+	 * @requires 0 <= i < size()
+	 * @return the element that was in the given index
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E set(int i, E e) {
+		int slot = slotOf(i);
+		E old = (E) elements[slot];
+		elements[slot] = e;
+		return old;
+	}
+
+	/**
+	 * Adds an element at the end of the list
+	 *
+	 * @param e the element to be added
+	 * @return true
+	 */
+	@Override
+	public boolean add(E e) {
+
+		if(slots == elements.length)
+			grow();
+
+		elements[slots] = e;
+		removed[slots] = false;
+		slots++;
+		size++;
+		increment(slots, 1);
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Adds an element in the given index, which must be the end of the list
+	 *
+	 * @param i the index, that must be size()
+	 * @param e the element to be added
+	 * @throws UnsupportedOperationException if i != size()
+	 */
+	@Override
+	public void add(int i, E e) {
+		if(i != size)
+			throw new UnsupportedOperationException("Elements can only be added at the end of the list");
+		add(e);
+	}
+
+	/**
+	 * Removes the element of the list in the given index, leaving a tombstone
+	 * in its slot
+	 *
+	 * @param i the index
+	 * @requires 0 <= i < size()
+	 * @return the removed element
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E remove(int i) {
+
+		int slot = slotOf(i);
+		E old = (E) elements[slot];
+
+		elements[slot] = null;
+		removed[slot] = true;
+		size--;
+		increment(slot + 1, -1);
+		modCount++;
+
+		if(slots - size >= MIN_TOMBSTONES_TO_COMPACT && slots - size > size)
+			compact();
+
+		return old;
+	}
+
+	/**
+	 * Removes every element that satisfies the given predicate in a single
+	 * pass over the list
+	 *
+	 * @param filter the predicate of the elements to be removed
+	 * @return true if some element was removed
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean removeIf(Predicate<? super E> filter) {
+
+		Objects.requireNonNull(filter);
+		int before = size;
+
+		for(int slot = 0; slot < slots; slot++) {
+			if(!removed[slot] && filter.test((E) elements[slot])) {
+				elements[slot] = null;
+				removed[slot] = true;
+				size--;
+			}
+		}
+
+		if(size == before)
+			return false;
+
+		modCount++;
+		compact();
+		return true;
+	}
+
+	/**
+	 * Removes every element of the list
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(elements, 0, slots, null);
+		Arrays.fill(tree, 0);
+		slots = 0;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Returns an iterator over the elements of the list that skips the tombstones
+	 *
+	 * @return an iterator over the elements of the list
+	 */
+	@Override
+	public Iterator<E> iterator() {
+
+		return new Iterator<E>() {
+
+			private int slot = nextLive(0);
+			private final int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return slot < slots;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if(modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+				if(slot >= slots)
+					throw new NoSuchElementException();
+
+				E e = (E) elements[slot];
+				slot = nextLive(slot + 1);
+				return e;
+			}
+		};
+	}
+
+	/**
+	 * Auxiliary method that returns the first live slot from the given one
+	 */
+	private int nextLive(int slot) {
+		while(slot < slots && removed[slot])
+			slot++;
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of the element in the given index, which is the
+	 * slot where the number of live slots up to it is i + 1
+	 *
+	 * @param i the index
+	 * @return the slot of the element in index i
+	 * @throws IndexOutOfBoundsException if i < 0 || i >= size()
+	 */
+	private int slotOf(int i) {
+
+		Objects.checkIndex(i, size);
+
+		int slot = 0;
+		int remaining = i + 1;
+
+		for(int step = Integer.highestOneBit(elements.length); step > 0; step >>= 1) {
+			int next = slot + step;
+			if(next <= elements.length && tree[next] < remaining) {
+				slot = next;
+				remaining -= tree[next];
+			}
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Adds delta to the count of the given position (starting at 1) of the tree
+	 */
+	private void increment(int position, int delta) {
+		for(; position < tree.length; position += position & -position)
+			tree[position] += delta;
+	}
+
+	/**
+	 * Doubles the capacity of the list, discarding its tombstones
+	 */
+	private void grow() {
+		elements = Arrays.copyOf(elements, elements.length * 2);
+		removed = Arrays.copyOf(removed, removed.length * 2);
+		compact();
+	}
+
+	/**
+	 * Discards every tombstone, moving the live elements to the first
+	 * slots, and rebuilds the tree
+	 */
+	private void compact() {
+
+		int live = 0;
+		for(int slot = 0; slot < slots; slot++) {
+			if(!removed[slot]) {
+				elements[live] = elements[slot];
+				live++;
+			}
+		}
+
+		Arrays.fill(elements, live, slots, null);
+		Arrays.fill(removed, 0, slots, false);
+		slots = live;
+
+		tree = new int[elements.length + 1];
+		for(int position = 1; position < tree.length; position++) {
+			if(position <= slots)
+				tree[position]++;
+			int parent = position + (position & -position);
+			if(parent < tree.length)
+				tree[parent] += tree[position];
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package util.adts;
+
+/**
+ * 
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A concrete class of AbsQListWithSelection<E>, a
+ * list of elements E that allows new elements to be added only
+ * at the end of the list, and has the ability to select one of
+ * the elements of the list at a time. Implements using TombstoneList,
+ * so removals do not shift the rest of the list, which suits large
+ * lists with many removals
+ * 
+ * 
+ * @param <E>
+ */
+public final class TombstoneQListWithSelection<E> extends AbsQListWithSelection<E> {
+	
+	/**
+	 * Constructor of the object
+	 */
+	public TombstoneQListWithSelection() {
+		super(new TombstoneList<>());
+	}
+
+}
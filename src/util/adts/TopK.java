@@ -0,0 +1,200 @@
+package util.adts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A ranking of elements E by an integer score that keeps apart the
+ * capacity() elements with the highest scores (the top) from the other
+ * ones, so that the top can be kept up to date while the scores change.
+ * Elements with the same score are ranked by the order they got it, the
+ * earliest first.
+ *
+ * Each element is stored with the score it had when it was added, so a
+ * change of score is given by removing the element and adding it again.
+ * The top and the other elements are kept in two balanced trees, ordered
+ * by rank, and a map finds the position of each element in them, so
+ * adding and removing an element take logarithmic time.
+ *
+ * @param <E>
+ */
+public class TopK<E> {
+
+	private final int capacity;
+	private final Map<E, Entry<E>> entries;
+	private final TreeSet<Entry<E>> top;
+	private final TreeSet<Entry<E>> rest;
+	private long sequence;
+
+	/**
+	 * Constructor of an empty ranking
+	 *
+	 * @param capacity the maximum number of elements of the top
+	 * @requires capacity > 0
+	 */
+	public TopK(int capacity) {
+		this.capacity = capacity;
+		this.entries = new HashMap<>();
+		this.top = new TreeSet<>();
+		this.rest = new TreeSet<>();
+		this.sequence = 0;
+	}
+
+	/**
+	 * Returns the maximum number of elements of the top
+	 *
+	 * @return the maximum number of elements of the top
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of elements of the top
+	 *
+	 * @return the number of elements of the top
+	 */
+	public int size() {
+		return top.size();
+	}
+
+	/**
+	 * Checks if the given element is in the top
+	 *
+	 * @param e the element
+	 * @return true if e is in the top, false otherwise
+	 */
+	public boolean contains(E e) {
+		Entry<E> entry = entries.get(e);
+		return entry != null && top.contains(entry);
+	}
+
+	/**
+	 * Checks if the given element is ranked, in the top or not
+	 *
+	 * @param e the element
+	 * @return true if e is ranked, false otherwise
+	 */
+	public boolean isRanked(E e) {
+		return entries.containsKey(e);
+	}
+
+	/**
+	 * Adds an element with the given score. If the element enters a full
+	 * top, the last element of the top leaves it
+	 *
+	 * @param e the element
+	 * @param score the score of e
+	 * @requires !isRanked(e)
+	 * @return the element that left the top, or null if none did
+	 */
+	public E add(E e, int score) {
+
+		Entry<E> entry = new Entry<>(e, score, sequence++);
+		entries.put(e, entry);
+
+		if(top.size() < capacity) {
+			top.add(entry);
+			return null;
+		}
+
+		if(entry.compareTo(top.last()) < 0) {
+			top.add(entry);
+			Entry<E> last = top.pollLast();
+			rest.add(last);
+			return last.element;
+		}
+
+		rest.add(entry);
+		return null;
+	}
+
+	/**
+	 * Removes an element. If the element was in the top, the first of the
+	 * other elements, if any, enters the top
+	 *
+	 * @param e the element
+	 * @return the element that entered the top, or null if none did
+	 */
+	public E remove(E e) {
+
+		Entry<E> entry = entries.remove(e);
+		if(entry == null)
+			return null;
+
+		if(!top.remove(entry)) {
+			rest.remove(entry);
+			return null;
+		}
+
+		Entry<E> first = rest.pollFirst();
+		if(first == null)
+			return null;
+
+		top.add(first);
+		return first.element;
+	}
+
+	/**
+	 * Compares the ranks of two elements
+	 *
+	 * @param a an element
+	 * @param b an element
+	 * @requires isRanked(a) && isRanked(b)
+	 * @return a negative number if a is ranked before b, 0 if they are the
+	 * same element and a positive number if a is ranked after b
+	 */
+	public int compare(E a, E b) {
+		return entries.get(a).compareTo(entries.get(b));
+	}
+
+	/**
+	 * Returns the elements of the top, by their rank
+	 *
+	 * @return the elements of the top, by their rank
+	 */
+	public List<E> top() {
+		List<E> elements = new ArrayList<>(top.size());
+		for(Entry<E> entry : top)
+			elements.add(entry.element);
+		return elements;
+	}
+
+	/**
+	 * Removes every element of the ranking
+	 */
+	public void clear() {
+		entries.clear();
+		top.clear();
+		rest.clear();
+	}
+
+	/**
+	 * An element with the score it was added with and the order it was added
+	 */
+	private static final class Entry<E> implements Comparable<Entry<E>> {
+
+		private final E element;
+		private final int score;
+		private final long sequence;
+
+		private Entry(E element, int score, long sequence) {
+			this.element = element;
+			this.score = score;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry<E> other) {
+			int byScore = Integer.compare(other.score, score);
+			return byScore != 0 ? byScore : Long.compare(sequence, other.sequence);
+		}
+	}
+}
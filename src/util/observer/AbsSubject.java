@@ -1,53 +1,358 @@
 package util.observer;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * @author antonialopes
  *
  * @param <E>
- * 
- * Represents objects that are being observed by a list of 
+ *
+ * Represents objects that are being observed by a list of
  * listeners of events of type E.
- * 
+ *
+ * By default the events are delivered to every listener before emitEvent
+ * returns. In asynchronous mode the events are put in a lock-free queue and
+ * delivered, by the order they were emitted, by a dispatcher thread, so
+ * emitting an event does not wait for the listeners. Synchronous listeners
+ * always get the events before emitEvent returns, in any mode. The
+ * dispatcher skips an event when the next queued event makes it redundant,
+ * as told by coalesces, and flush waits until the emitted events are
+ * delivered. A listener that fails on the dispatcher does not keep the
+ * others from getting the event, and its exception goes to the uncaught
+ * exception handler of the dispatcher thread.
+ *
+ * Listeners can also subscribe to a single type of events, and optionally
+ * to the events of that type with a given key, as told by keysOf, so that
+ * they are not called for the events they would ignore. An event with
+ * several keys is delivered once to each listener of any of its keys. A
+ * listener of a type also gets the events of its subtypes.
+ *
  */
 public abstract class AbsSubject<E extends Event> implements Subject<E> {
-	
-	protected List<Listener<E>> listeners = new ArrayList<>();
-	
+
+	private static final int MAX_BATCH_SIZE = 1024;
+
+	protected List<Listener<E>> listeners = new CopyOnWriteArrayList<>();
+
+	private final List<Listener<E>> synchronousListeners = new CopyOnWriteArrayList<>();
+	private final Map<Class<?>, CopyOnWriteArrayList<Listener<E>>> typedListeners = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Map<Object, CopyOnWriteArrayList<Listener<E>>>> keyedListeners = new ConcurrentHashMap<>();
+	private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicLong emitted = new AtomicLong();
+	private final Object progress = new Object();
+	private long delivered;
+	private volatile Thread dispatcher;
+	private volatile boolean dispatching;
+
 	protected  AbsSubject() {}
-	
+
 	/**
 	 * Emits a given event to the listeners
-	 * 
+	 *
 	 * @param e event that occurred
 	 */
 	@Override
 	public void emitEvent(E e) {
-		for (Listener<E> o : listeners) {
+		for (Listener<E> o : synchronousListeners) {
 			o.processEvent(e);
 		}
+
+		Thread thread = dispatcher;
+		if (thread == null) {
+			deliver(e, false);
+			return;
+		}
+
+		queue.offer(e);
+		emitted.incrementAndGet();
+		LockSupport.unpark(thread);
 	}
-	
+
 	/**
 	 * Registers a new listener
-	 * 
-	 * @param obs listener to be added 
+	 *
+	 * @param obs listener to be added
 	 */
 	@Override
 	public void registerListener(Listener<E> obs) {
 		listeners.add(obs);
 	}
-	
+
+	/**
+	 * Registers a new listener that gets the events before emitEvent
+	 * returns, even in asynchronous mode
+	 *
+	 * @param obs listener to be added
+	 */
+	public void registerSynchronousListener(Listener<E> obs) {
+		synchronousListeners.add(obs);
+	}
+
+	/**
+	 * Registers a new listener of the events of the given type and its
+	 * subtypes. Registering a listener twice for the same type has no effect
+	 *
+	 * @param type the type of the events
+	 * @param obs listener to be added
+	 */
+	public void registerListener(Class<? extends E> type, Listener<E> obs) {
+		typedListeners.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>()).addIfAbsent(obs);
+	}
+
+	/**
+	 * Registers a new listener of the events of the given type, and its
+	 * subtypes, with the given key. Registering a listener twice for the
+	 * same type and key has no effect
+	 *
+	 * @param type the type of the events
+	 * @param key the key of the events
+	 * @param obs listener to be added
+	 * @requires key != null
+	 */
+	public void registerListener(Class<? extends E> type, Object key, Listener<E> obs) {
+		keyedListeners.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).compute(key, (k, list) -> {
+			CopyOnWriteArrayList<Listener<E>> keyed = list == null ? new CopyOnWriteArrayList<>() : list;
+			keyed.addIfAbsent(obs);
+			return keyed;
+		});
+	}
+
+	/**
+	 * Removes the registry of the given listener for the events of the
+	 * given type with the given key
+	 *
+	 * @param type the type of the events
+	 * @param key the key of the events
+	 * @param obs listener to be removed
+	 */
+	public void unregisterListener(Class<? extends E> type, Object key, Listener<E> obs) {
+		Map<Object, CopyOnWriteArrayList<Listener<E>>> keyed = keyedListeners.get(type);
+		if (keyed != null)
+			keyed.computeIfPresent(key, (k, list) -> list.remove(obs) && list.isEmpty() ? null : list);
+	}
+
 	/**
-	 * Removes the registry of the given listener
-	 * 
+	 * Removes every registry of the given listener
+	 *
 	 * @param obs listener to be removed
 	 */
 	@Override
 	public void unregisterListener(Listener<E> obs) {
 		listeners.remove(obs);
+		synchronousListeners.remove(obs);
+		for (CopyOnWriteArrayList<Listener<E>> typed : typedListeners.values())
+			typed.remove(obs);
+		for (Map<Object, CopyOnWriteArrayList<Listener<E>>> keyed : keyedListeners.values())
+			keyed.values().removeIf(list -> list.remove(obs) && list.isEmpty());
+	}
+
+	/**
+	 * Checks if the events are delivered by a dispatcher thread
+	 *
+	 * @return true if the subject is in asynchronous mode, false otherwise
+	 */
+	public boolean isAsynchronous() {
+		return dispatcher != null;
+	}
+
+	/**
+	 * Turns the asynchronous mode on or off. Turning it off delivers the
+	 * queued events and stops the dispatcher thread
+	 *
+	 * @param asynchronous true for asynchronous mode, false otherwise
+	 * @requires no events are emitted while the mode changes
+	 */
+	public synchronized void setAsynchronous(boolean asynchronous) {
+
+		if (asynchronous == isAsynchronous())
+			return;
+
+		if (asynchronous) {
+			dispatching = true;
+			Thread thread = new Thread(this::dispatch, getClass().getSimpleName() + "-dispatcher");
+			thread.setDaemon(true);
+			dispatcher = thread;
+			thread.start();
+			return;
+		}
+
+		Thread thread = dispatcher;
+		dispatching = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		dispatcher = null;
+	}
+
+	/**
+	 * Waits until every event emitted before the call is delivered to the
+	 * listeners. Returns at once if the subject is not in asynchronous mode
+	 * or if it is called by a listener, from the dispatcher thread
+	 */
+	public void flush() {
+
+		Thread thread = dispatcher;
+		if (thread == null || Thread.currentThread() == thread)
+			return;
+
+		long target = emitted.get();
+		synchronized (progress) {
+			while (delivered < target && thread.isAlive()) {
+				try {
+					progress.wait(10);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks if an event is made redundant by the event emitted right
+	 * after it, so that only the later one has to be delivered in
+	 * asynchronous mode. No event is redundant by default
+	 *
+	 * @param previous an event
+	 * @param next the event emitted right after previous
+	 * @return true if previous does not have to be delivered, false otherwise
+	 */
+	protected boolean coalesces(E previous, E next) {
+		return false;
+	}
+
+	/**
+	 * Returns the keys of the given event, used to find the listeners that
+	 * subscribed to the events with any of those keys. Events have no keys
+	 * by default
+	 *
+	 * @param e an event
+	 * @return the keys of e, empty if it has none
+	 * @ensures \result != null
+	 */
+	protected Collection<?> keysOf(E e) {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Delivers an event to the listeners of every event, of its type and
+	 * of its key. If isolate is true, a listener that fails does not keep
+	 * the others from getting the event, and its exception is handed to the
+	 * uncaught exception handler of the current thread
+	 */
+	private void deliver(E e, boolean isolate) {
+
+		for (Listener<E> o : listeners)
+			call(o, e, isolate);
+
+		if (typedListeners.isEmpty() && keyedListeners.isEmpty())
+			return;
+
+		Collection<?> keys = keyedListeners.isEmpty() ? Collections.emptyList() : keysOf(e);
+		for (Class<?> type = e.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+			List<Listener<E>> typed = typedListeners.get(type);
+			if (typed != null)
+				for (Listener<E> o : typed)
+					call(o, e, isolate);
+
+			Map<Object, CopyOnWriteArrayList<Listener<E>>> keyed = keys.isEmpty() ? null : keyedListeners.get(type);
+			if (keyed != null && !keyed.isEmpty())
+				deliverToKeys(e, keyed, keys, isolate);
+		}
+	}
+
+	/**
+	 * Auxiliary method that delivers an event to the listeners of any of
+	 * its keys, once to each listener
+	 */
+	private static <E extends Event> void deliverToKeys(E e, Map<Object, CopyOnWriteArrayList<Listener<E>>> keyed,
+			Collection<?> keys, boolean isolate) {
+
+		if (keys.size() == 1) {
+			List<Listener<E>> ofKey = keyed.get(keys.iterator().next());
+			if (ofKey != null)
+				for (Listener<E> o : ofKey)
+					call(o, e, isolate);
+			return;
+		}
+
+		Set<Listener<E>> called = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Object key : keys) {
+			List<Listener<E>> ofKey = key == null ? null : keyed.get(key);
+			if (ofKey != null)
+				for (Listener<E> o : ofKey)
+					if (called.add(o))
+						call(o, e, isolate);
+		}
+	}
+
+	/**
+	 * Auxiliary method that delivers an event to a listener, handing the
+	 * exception of a failed listener to the uncaught exception handler of
+	 * the current thread if isolate is true
+	 */
+	private static <E extends Event> void call(Listener<E> o, E e, boolean isolate) {
+
+		if (!isolate) {
+			o.processEvent(e);
+			return;
+		}
+
+		try {
+			o.processEvent(e);
+		} catch (RuntimeException ex) {
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+		}
+	}
+
+	/**
+	 * The loop of the dispatcher thread, that delivers the queued events
+	 * in batches until the asynchronous mode is turned off
+	 */
+	private void dispatch() {
+
+		List<E> batch = new ArrayList<>();
+
+		while (true) {
+			E e;
+			while (batch.size() < MAX_BATCH_SIZE && (e = queue.poll()) != null)
+				batch.add(e);
+
+			if (batch.isEmpty()) {
+				if (!dispatching)
+					return;
+				LockSupport.park(this);
+				continue;
+			}
+
+			for (int i = 0; i < batch.size(); i++) {
+				if (i + 1 < batch.size() && coalesces(batch.get(i), batch.get(i + 1)))
+					continue;
+				deliver(batch.get(i), true);
+			}
+
+			synchronized (progress) {
+				delivered += batch.size();
+				progress.notifyAll();
+			}
+			batch.clear();
+		}
 	}
 
 }
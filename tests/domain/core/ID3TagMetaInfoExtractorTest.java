@@ -0,0 +1,119 @@
+package domain.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the methods of the class ID3TagMetaInfoExtractor
+ * over files with synthetic tags.
+ */
+public class ID3TagMetaInfoExtractorTest {
+
+	@Test public void id3v23Tag() throws IOException {
+		ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		frame(frames, "TIT2", 0, "Acordar".getBytes(StandardCharsets.ISO_8859_1));
+		frame(frames, "TPE1", 3, "Vicentuna\0TunaSabes".getBytes(StandardCharsets.UTF_8));
+		frame(frames, "TALB", 1, "Tunagem".getBytes(StandardCharsets.UTF_16));
+		frame(frames, "TCON", 0, "(17)".getBytes(StandardCharsets.ISO_8859_1));
+
+		ID3TagMetaInfoExtractor extractor = new ID3TagMetaInfoExtractor(file(tag(3, frames.toByteArray()), null));
+		assertEquals("Acordar", extractor.getTitle());
+		assertEquals(Arrays.asList("Vicentuna", "TunaSabes"), extractor.getArtists());
+		assertEquals("Tunagem", extractor.getAlbum());
+		assertEquals("Rock", extractor.getGenre());
+	}
+
+	@Test public void id3v1Fallback() throws IOException {
+		ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		frame(frames, "TIT2", 0, "Serenata".getBytes(StandardCharsets.ISO_8859_1));
+
+		ID3TagMetaInfoExtractor extractor = new ID3TagMetaInfoExtractor(
+				file(tag(3, frames.toByteArray()), id3v1("Outra", "Vicentuna", "Noites", 17)));
+		assertEquals("Serenata", extractor.getTitle());
+		assertEquals(Arrays.asList("Vicentuna"), extractor.getArtists());
+		assertEquals("Noites", extractor.getAlbum());
+		assertEquals("Rock", extractor.getGenre());
+	}
+
+	@Test public void tagLargerThanFile() throws IOException {
+		ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		frame(frames, "TIT2", 0, "Vento".getBytes(StandardCharsets.ISO_8859_1));
+		byte[] tag = tag(3, frames.toByteArray());
+		tag[6] = tag[7] = tag[8] = tag[9] = 0x7F;
+
+		ID3TagMetaInfoExtractor extractor = new ID3TagMetaInfoExtractor(file(tag, null));
+		assertEquals("Vento", extractor.getTitle());
+	}
+
+	@Test public void noTags() throws IOException {
+		ID3TagMetaInfoExtractor extractor = new ID3TagMetaInfoExtractor(file(null, null));
+		assertEquals("unknown", extractor.getTitle());
+		assertEquals(Arrays.asList("unknown"), extractor.getArtists());
+		assertEquals("unknown", extractor.getGenre());
+	}
+
+	private static void frame(ByteArrayOutputStream out, String id, int encoding, byte[] text) throws IOException {
+		out.write(id.getBytes(StandardCharsets.ISO_8859_1));
+		int size = text.length + 1;
+		out.write(new byte[] {(byte) (size >> 24), (byte) (size >> 16), (byte) (size >> 8), (byte) size, 0, 0});
+		out.write(encoding);
+		out.write(text);
+	}
+
+	private static byte[] tag(int version, byte[] frames) {
+		byte[] tag = new byte[10 + frames.length];
+		tag[0] = 'I';
+		tag[1] = 'D';
+		tag[2] = '3';
+		tag[3] = (byte) version;
+		tag[6] = (byte) ((frames.length >> 21) & 0x7F);
+		tag[7] = (byte) ((frames.length >> 14) & 0x7F);
+		tag[8] = (byte) ((frames.length >> 7) & 0x7F);
+		tag[9] = (byte) (frames.length & 0x7F);
+		System.arraycopy(frames, 0, tag, 10, frames.length);
+		return tag;
+	}
+
+	private static byte[] id3v1(String title, String artist, String album, int genre) {
+		byte[] tag = new byte[128];
+		tag[0] = 'T';
+		tag[1] = 'A';
+		tag[2] = 'G';
+		put(tag, 3, title);
+		put(tag, 33, artist);
+		put(tag, 63, album);
+		tag[127] = (byte) genre;
+		return tag;
+	}
+
+	private static void put(byte[] tag, int index, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+		System.arraycopy(bytes, 0, tag, index, bytes.length);
+	}
+
+	private static String file(byte[] id3v2, byte[] id3v1) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		if(id3v2 != null)
+			content.write(id3v2);
+		content.write(new byte[4096]);
+		if(id3v1 != null)
+			content.write(id3v1);
+
+		Path file = Files.createTempFile("leitunes", ".mp3");
+		file.toFile().deleteOnExit();
+		Files.write(file, content.toByteArray());
+		return file.toString();
+	}
+}
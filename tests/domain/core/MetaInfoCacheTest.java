@@ -0,0 +1,96 @@
+package domain.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the methods of the class MetaInfoCache.
+ */
+public class MetaInfoCacheTest {
+
+	private AtomicInteger parsed;
+	private Function<String, IMetaInfoExtractor> extractors;
+	private Path folder;
+	private Path song;
+
+	@Before public void setUp() throws IOException {
+		parsed = new AtomicInteger();
+		extractors = filename -> {
+			parsed.incrementAndGet();
+			return new IMetaInfoExtractor() {
+				@Override public String getTitle() { return "Acordar"; }
+				@Override public List<String> getArtists() { return Arrays.asList("Vicentuna", "TunaSabes"); }
+				@Override public String getGenre() { return "Rock"; }
+				@Override public String getAlbum() { return "Tunagem"; }
+			};
+		};
+		folder = Files.createTempDirectory("leitunes");
+		folder.toFile().deleteOnExit();
+		song = Files.write(folder.resolve("acordar.mp3"), new byte[64]);
+		song.toFile().deleteOnExit();
+	}
+
+	@Test public void unchangedFileIsNotParsedAgain() throws IOException {
+		Path file = folder.resolve("metainfo.cache");
+		file.toFile().deleteOnExit();
+
+		MetaInfoCache cache = MetaInfoCache.load(file, extractors);
+		cache.extract(song.toString());
+		cache.save(file);
+
+		MetaInfoCache loaded = MetaInfoCache.load(file, extractors);
+		IMetaInfoExtractor extractor = loaded.extract(song.toString());
+		assertEquals(1, parsed.get());
+		assertEquals("Acordar", extractor.getTitle());
+		assertEquals(Arrays.asList("Vicentuna", "TunaSabes"), extractor.getArtists());
+		assertEquals("Rock", extractor.getGenre());
+		assertEquals("Tunagem", extractor.getAlbum());
+	}
+
+	@Test public void changedFileIsParsedAgain() throws IOException {
+		MetaInfoCache cache = new MetaInfoCache(extractors);
+		cache.extract(song.toString());
+		Files.setLastModifiedTime(song, FileTime.fromMillis(Files.getLastModifiedTime(song).toMillis() - 60000));
+		cache.extract(song.toString());
+		cache.extract(song.toString());
+		assertEquals(2, parsed.get());
+	}
+
+	@Test public void pruneForgetsDeletedFiles() throws IOException {
+		Path file = folder.resolve("pruned.cache");
+		file.toFile().deleteOnExit();
+		Path other = Files.write(folder.resolve("vento.mp3"), new byte[32]);
+
+		MetaInfoCache cache = MetaInfoCache.load(file, extractors);
+		cache.extract(song.toString());
+		cache.extract(other.toString());
+		cache.save(file);
+
+		Files.delete(other);
+		cache.prune();
+		cache.save(file);
+		assertEquals(1, cache.size());
+		assertEquals(1, MetaInfoCache.load(file, extractors).size());
+	}
+
+	@Test public void invalidFileStartsEmpty() throws IOException {
+		Path file = Files.write(folder.resolve("broken.cache"), new byte[] {1, 2, 3});
+		file.toFile().deleteOnExit();
+		assertEquals(0, MetaInfoCache.load(file, extractors).size());
+	}
+}
@@ -0,0 +1,330 @@
+package domain.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.facade.ISong;
+import domain.playlists.MostLikedSongsPlaylist;
+import util.observer.Listener;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the searches and bulk operations
+ * of the class MusicLibrary.
+ */
+public class MusicLibraryTest {
+
+	private MusicLibrary library;
+	private ISong acordar;
+	private ISong serenata;
+	private ISong vento;
+
+	@Before public void setUp() {
+		library = new MusicLibrary();
+		acordar = new Song(new SongMetaInfo("Acordar", Arrays.asList("Vicentuna", "TunaSabes"), "Rock", "Tunagem"), "acordar.mp3");
+		serenata = new Song(new SongMetaInfo("Serenata", Arrays.asList("Vicentuna"), "Fado", "Noites"), "serenata.mp3");
+		vento = new Song(new SongMetaInfo("Vento", Arrays.asList("Estudantina"), "Rock", "Ventania"), "vento.mp3");
+		library.add(acordar);
+		library.add(serenata);
+		library.add(vento);
+	}
+
+	@Test public void matchesLiteral() {
+		assertEquals(Arrays.asList(acordar, vento), library.getMatches("Rock"));
+		assertEquals(Arrays.asList(acordar, serenata), library.getMatches("Vicentuna"));
+		assertEquals(Arrays.asList(), library.getMatches("Roc"));
+	}
+
+	@Test public void matchesPrefix() {
+		assertEquals(Arrays.asList(vento), library.getMatches("Vent.*"));
+		assertEquals(Arrays.asList(acordar, vento), library.getMatches("Tun.*|Vento"));
+		assertEquals(Arrays.asList(acordar, serenata, vento), library.getMatches(".*"));
+	}
+
+	@Test public void matchesLikeTheScan() {
+		ISong fim = new Song(new SongMetaInfo("Fim\uFFFF", Arrays.asList("Fim\nda noite"), "Fim\nde tarde", "Fim\r"), "fim.mp3");
+		library.add(fim);
+		assertEquals(Arrays.asList(fim), library.getMatches("Fim.*"));
+		assertEquals(Arrays.asList(fim), library.query("title:Fim*"));
+
+		ISong noite = new Song(new SongMetaInfo("Noite\nlonga", Arrays.asList("Noite\r"), "Noite\u2028", "Noite\n"), "noite.mp3");
+		library.add(noite);
+		assertEquals(Arrays.asList(acordar, serenata, vento, fim), library.getMatches(".*"));
+		assertEquals(Arrays.asList(serenata), library.getMatches("Noite.*"));
+	}
+
+	@Test public void matchesAfterRemoval() {
+		library.select(0);
+		library.remove();
+		assertEquals(Arrays.asList(vento), library.getMatches("Rock"));
+		assertEquals(Arrays.asList(serenata), library.getMatches("Vicen.*"));
+		assertEquals(Arrays.asList(serenata, vento), library.getMatches(".*"));
+	}
+
+	@Test public void matchesRegularExpression() {
+		assertEquals(Arrays.asList(serenata), library.getMatches(".*ad.*"));
+		assertEquals(Arrays.asList(acordar, serenata), library.getMatches("[A-Z]\\w+una"));
+	}
+
+	@Test public void matchesInParallel() {
+		List<ISong> expected = new ArrayList<>(Arrays.asList(acordar, serenata));
+		for(int i = 0; i < 100; i++) {
+			ISong song = new Song(new SongMetaInfo("Song " + i, Arrays.asList("Artist " + i), i % 2 == 0 ? "Jazz" : "Blues", "Album"), "song" + i + ".mp3");
+			library.add(song);
+			if(i % 2 == 0)
+				expected.add(song);
+		}
+
+		library.setParallelThreshold(7);
+		assertEquals(expected, library.getMatches("Jazz|.*una"));
+	}
+
+	@Test public void matchesPage() {
+		assertEquals(Arrays.asList(serenata), library.getMatches(".*", 1, 1));
+		assertEquals(Arrays.asList(serenata, vento), library.getMatches("Rock|Fado", 1, 5));
+		assertEquals(Arrays.asList(acordar), library.streamMatches(".*a.*").limit(1).collect(Collectors.toList()));
+	}
+
+	@Test public void matchesParallelStream() {
+		for(int i = 0; i < 1000; i++)
+			library.add(new Song(new SongMetaInfo("Song " + i, Arrays.asList("Artist " + i), i % 3 == 0 ? "Jazz" : "Blues", "Album " + i), "song" + i + ".mp3"));
+
+		List<ISong> expected = library.streamMatches("J.zz|.*una").collect(Collectors.toList());
+		assertEquals(336, expected.size());
+		assertEquals(expected, library.streamMatches("J.zz|.*una").parallel().collect(Collectors.toList()));
+		assertEquals(library.streamMatches("Album 1.*").collect(Collectors.toList()), library.streamMatches("Album 1.*").parallel().collect(Collectors.toList()));
+		assertEquals(Arrays.asList(acordar, serenata), library.streamMatches("Vicentuna").parallel().collect(Collectors.toList()));
+	}
+
+	@Test public void query() {
+		library.select(0);
+		for(int i = 0; i < 7; i++)
+			library.incRateSelected();
+		library.select(2);
+		library.incRateSelected();
+
+		assertEquals(Arrays.asList(acordar), library.query("artist:\"Vicentuna\" AND genre:Rock AND rating>=7"));
+		assertEquals(Arrays.asList(acordar, serenata), library.query("artist:Vicen*"));
+		assertEquals(Arrays.asList(serenata, vento), library.query("rating<7 AND played=0"));
+		assertEquals(Arrays.asList(), library.query("album:Noites AND genre:Rock"));
+	}
+
+	@Test public void queryPlayed() {
+		for(int i = 0; i < 3; i++)
+			library.incTimesPlayed(serenata);
+		library.incTimesPlayed(vento);
+
+		assertEquals(Arrays.asList(serenata, vento), library.query("played>=1"));
+		assertEquals(Arrays.asList(serenata), library.query("played=3"));
+		assertEquals(Arrays.asList(acordar, serenata), library.query("played!=1"));
+		assertEquals(Arrays.asList(acordar, vento), library.query("played<=1"));
+		assertEquals(Arrays.asList(vento), library.query("played>0 AND played<2"));
+
+		library.setTimesPlayed(vento, 5);
+		library.removeAll(song -> song == serenata);
+		assertEquals(Arrays.asList(vento), library.query("played>0"));
+		assertEquals(Arrays.asList(), library.query("played=3"));
+		assertEquals(Arrays.asList(acordar), library.query("played=0"));
+	}
+
+	@Test public void queryRoundTrip() {
+		ISong diz = new Song(new SongMetaInfo("Say\"hi\"", Arrays.asList("C:\\Tuna\\"), "Rock", "\"Noites\""), "diz.mp3");
+		library.add(diz);
+
+		SongQuery query = SongQuery.parse("title:Say\"hi\" AND artist:\"C:\\\\Tuna\\\\\" AND album:\"\\\"Noi\"*");
+		assertEquals(Arrays.asList(diz), library.query(query.toString()));
+		assertEquals(query.toString(), SongQuery.parse(query.toString()).toString());
+		assertEquals("title:\"Say\\\"hi\\\"\" AND artist:\"C:\\\\Tuna\\\\\" AND album:\"\\\"Noi\"*", query.toString());
+	}
+
+	@Test public void queryQuotedStar() {
+		ISong star = new Song(new SongMetaInfo("Help*", Arrays.asList("Vicentuna"), "Rock", "Tunagem"), "star.mp3");
+		ISong helping = new Song(new SongMetaInfo("Helping", Arrays.asList("Vicentuna"), "Rock", "Tunagem"), "helping.mp3");
+		library.add(star);
+		library.add(helping);
+
+		assertEquals(Arrays.asList(star), library.query("title:\"Help*\""));
+		assertEquals(Arrays.asList(star, helping), library.query("title:\"Help\"*"));
+		assertEquals(Arrays.asList(star, helping), library.query("title:Help*"));
+		assertEquals("title:\"Help*\"", SongQuery.parse("title:\"Help*\"").toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void queryUnknownField() {
+		library.query("year>2000");
+	}
+
+	@Test public void find() {
+		assertEquals(Optional.of(serenata), library.find("serenata.mp3"));
+		assertEquals(Optional.empty(), library.find("fado.mp3"));
+
+		library.select(1);
+		library.remove();
+		assertFalse(library.contains("serenata.mp3"));
+	}
+
+	@Test public void addAllAndRemoveAll() {
+		List<SongLibraryEvent> events = new ArrayList<>();
+		library.registerListener(events::add);
+
+		ISong fado = new Song(new SongMetaInfo("Fado", Arrays.asList("Estudantina"), "Fado", "Noites"), "fado.mp3");
+		ISong balada = new Song(new SongMetaInfo("Balada", Arrays.asList("Estudantina"), "Fado", "Noites"), "balada.mp3");
+		library.addAll(Arrays.asList(fado, balada));
+
+		assertEquals(Arrays.asList(serenata, fado, balada), library.getMatches("Fado"));
+		assertEquals(2, library.removeAll(song -> song.getArtists().contains("Vicentuna")));
+		assertEquals(Arrays.asList(vento, fado, balada), library.getMatches(".*"));
+
+		assertEquals(2, events.size());
+		assertEquals(Arrays.asList(fado, balada), events.get(0).getSongs());
+		assertEquals(Arrays.asList(acordar, serenata), events.get(1).getSongs());
+	}
+
+	@Test public void getBetweenChanges() {
+		List<ISong> seen = new ArrayList<>();
+		library.registerListener(e -> seen.add(library.get(library.size() - 1)));
+
+		for(int i = 0; i < 100; i++) {
+			ISong song = new Song(new SongMetaInfo("Tema" + i, Arrays.asList("Vicentuna"), "Jazz", "Sessoes"), "tema" + i + ".mp3");
+			library.add(song);
+			assertEquals(song, library.get(library.size() - 1));
+			library.removeAll(s -> s == song);
+			assertEquals(vento, library.get(2));
+		}
+
+		assertEquals(200, seen.size());
+		assertEquals(vento, seen.get(1));
+	}
+
+	@Test public void keyedListenersGetBatches() {
+		List<SongLibraryEvent> events = new ArrayList<>();
+		Listener<SongLibraryEvent> listener = events::add;
+		library.registerListener(SongLibraryEvent.class, acordar, listener);
+		library.registerListener(SongLibraryEvent.class, serenata, listener);
+
+		library.rate(vento, new Rate(3));
+		library.removeAll(song -> song != vento);
+
+		assertEquals(1, events.size());
+		assertEquals(Arrays.asList(acordar, serenata), events.get(0).getSongs());
+	}
+
+	@Test public void addAllIndexesLazily() {
+		AtomicInteger decoded = new AtomicInteger();
+		ISong fado = new Song(new SongMetaInfo("Fado", Arrays.asList("Estudantina"), "Fado", "Noites"), "fado.mp3") {
+			@Override
+			public String getSongTitle() {
+				decoded.incrementAndGet();
+				return super.getSongTitle();
+			}
+		};
+		ISong balada = new Song(new SongMetaInfo("Balada", Arrays.asList("Estudantina"), "Fado", "Noites"), "balada.mp3");
+		library.addAll(Arrays.asList(fado, balada));
+		assertEquals(0, decoded.get());
+
+		ISong cancao = new Song(new SongMetaInfo("Cancao", Arrays.asList("Estudantina"), "Fado", "Noites"), "cancao.mp3");
+		library.add(cancao);
+		library.removeAll(song -> song == fado);
+		library.rate(balada, new Rate(8));
+		assertEquals(0, decoded.get());
+
+		assertEquals(Arrays.asList(serenata, balada, cancao), library.getMatches("Fado"));
+		assertEquals(Arrays.asList(balada), library.query("rating>=8"));
+		assertEquals(Optional.empty(), library.find("fado.mp3"));
+		assertEquals(Optional.of(balada), library.find(balada.getId()));
+	}
+
+	@Test public void stableIdentity() {
+		SongId id = serenata.getId();
+		int hash = serenata.hashCode();
+		library.select(1);
+		library.incRateSelected();
+		serenata.incTimesPlayed();
+
+		assertEquals(id, serenata.getId());
+		assertEquals(hash, serenata.hashCode());
+		assertEquals(Optional.of(serenata), library.find(id));
+		assertFalse(acordar.getId().equals(id));
+
+		ISong copy = new Song(new SongMetaInfo("Serenata", Arrays.asList("Vicentuna"), "Fado", "Noites"), "serenata.mp3");
+		assertFalse(copy.equals(serenata));
+	}
+
+	@Test public void asynchronousPlaylists() {
+		MostLikedSongsPlaylist playlist = new MostLikedSongsPlaylist(library, 2);
+		library.setAsynchronous(true);
+		for(int i = 0; i < 100; i++) {
+			library.rate(serenata, new Rate(i % 10 + 1));
+			library.rate(vento, new Rate(10 - i % 10));
+		}
+		library.rate(acordar, new Rate(5));
+
+		assertEquals(acordar, library.find("acordar.mp3").get());
+		library.flush();
+		List<ISong> contents = new ArrayList<>();
+		playlist.forEach(contents::add);
+		assertEquals(Arrays.asList(serenata, acordar), contents);
+		library.setAsynchronous(false);
+	}
+
+	@Test public void concurrentReaders() throws InterruptedException {
+		MostLikedSongsPlaylist playlist = new MostLikedSongsPlaylist(library, 2);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		Thread writer = new Thread(() -> {
+			for(int i = 0; i < 2000; i++) {
+				ISong song = new Song(new SongMetaInfo("Tema" + i, Arrays.asList("Vicentuna"), "Jazz", "Sessoes"), "tema" + i + ".mp3");
+				library.add(song);
+				library.rate(song, new Rate(i % 10 + 1));
+				if(i % 3 == 0)
+					library.removeAll(s -> s == song);
+			}
+		});
+
+		List<Thread> readers = new ArrayList<>();
+		for(int r = 0; r < 3; r++) {
+			readers.add(new Thread(() -> {
+				try {
+					while(writer.isAlive()) {
+						int size = 0;
+						for(ISong song : library)
+							size++;
+						assertTrue(size >= 3);
+						library.getMatches("Jazz").forEach(song -> assertEquals("Jazz", song.getGenre()));
+						library.getMatches("Tem.5").forEach(song -> assertTrue(song.getSongTitle().startsWith("Tem")));
+						library.query("genre:Jazz AND rating>=5").forEach(song -> assertEquals("Jazz", song.getGenre()));
+						playlist.forEach(song -> assertTrue(song.getRating().getValue() >= 1));
+					}
+				} catch(Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}));
+		}
+
+		writer.start();
+		readers.forEach(Thread::start);
+		writer.join();
+		for(Thread reader : readers)
+			reader.join();
+
+		if(failure.get() != null)
+			throw new AssertionError(failure.get());
+		assertEquals(3 + 2000 - 667, library.size());
+		assertEquals(2000 - 667, ((List<ISong>) library.getMatches("Jazz")).size());
+		assertEquals(library.size(), library.streamSongs().count());
+	}
+}
@@ -4,6 +4,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.Test;
 
@@ -134,4 +136,13 @@ public class SongTest {
 		
 		 assertTrue(matchesTitle && matchesArtists && matchesGenre && matchesAlbum && !matchesRandom);
 	 }
+	 
+	 @Test public void testMatchesReusedMatcher() {
+		 
+		 Song song = new Song(metainfo, "acordar.mp3");
+		 Song other = new Song(new SongMetaInfo("Serenata", Arrays.asList("Estudantina"), "Fado", "Noites"), "serenata.mp3");
+		 Matcher matcher = Pattern.compile(".*Sabes.*").matcher("");
+		 
+		 assertTrue(song.matches(matcher) && !other.matches(matcher) && song.matches(matcher));
+	 }
 }
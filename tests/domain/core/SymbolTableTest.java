@@ -0,0 +1,60 @@
+package domain.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the methods of the class SymbolTable.
+ */
+public class SymbolTableTest {
+
+	@Test public void sharedInstances() {
+		SymbolTable symbols = new SymbolTable();
+		String rock = symbols.intern(new String("Rock"));
+		assertSame(rock, symbols.intern(new String("Rock")));
+		assertNull(symbols.intern((String) null));
+	}
+
+	@Test public void ids() {
+		SymbolTable symbols = new SymbolTable();
+		assertEquals(0, symbols.id("Rock"));
+		assertEquals(1, symbols.id("Fado"));
+		assertEquals(0, symbols.id(new String("Rock")));
+		assertEquals("Fado", symbols.value(1));
+		assertEquals(2, symbols.size());
+	}
+
+	@Test public void sharedMetaInfo() {
+		SymbolTable symbols = new SymbolTable();
+		SongMetaInfo acordar = SongMetaInfo.of("Acordar", Arrays.asList(new String("Vicentuna")), new String("Rock"), new String("Tunagem"), symbols);
+		SongMetaInfo vento = SongMetaInfo.of("Vento", Arrays.asList(new String("Vicentuna")), new String("Rock"), new String("Tunagem"), symbols);
+		assertSame(acordar.getGenre(), vento.getGenre());
+		assertSame(acordar.getAlbum(), vento.getAlbum());
+		assertSame(acordar.getArtists(), vento.getArtists());
+		assertEquals(Arrays.asList("Vicentuna"), vento.getArtists());
+	}
+
+	@Test public void concurrentIds() {
+		SymbolTable symbols = new SymbolTable();
+		List<Integer> ids = IntStream.range(0, 10000).parallel()
+				.mapToObj(i -> symbols.id("artist" + (i % 100)))
+				.distinct().collect(Collectors.toList());
+		assertEquals(100, ids.size());
+		assertEquals(100, symbols.size());
+		for(int id : ids)
+			assertTrue(symbols.id(symbols.value(id)) == id);
+	}
+}
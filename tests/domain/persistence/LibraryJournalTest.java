@@ -0,0 +1,105 @@
+package domain.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the methods of the class LibraryJournal.
+ */
+public class LibraryJournalTest {
+
+	private Path file;
+
+	@Before public void setUp() throws IOException {
+		file = Files.createTempFile("leitunes", ".journal");
+		file.toFile().deleteOnExit();
+	}
+
+	@Test public void replayChanges() throws IOException {
+		write(0);
+		checkReplay();
+	}
+
+	@Test public void replayGroupCommittedChanges() throws IOException {
+		write(20);
+		checkReplay();
+	}
+
+	@Test public void replayIgnoresTornRecord() throws IOException {
+		write(0);
+		Files.write(file, new byte[] {0, 0, 0, 40, 3, 0}, StandardOpenOption.APPEND);
+		checkReplay();
+
+		try(LibraryJournal journal = new LibraryJournal(file, 0)) {
+			MusicLibrary library = new MusicLibrary();
+			library.registerListener(journal);
+			library.add(song("vento.mp3", "Vento"));
+		}
+
+		MusicLibrary restored = new MusicLibrary();
+		assertEquals(9, LibraryJournal.replay(file, restored));
+		assertTrue(restored.contains("vento.mp3"));
+	}
+
+	@Test public void truncate() throws IOException {
+		try(LibraryJournal journal = new LibraryJournal(file, 0)) {
+			MusicLibrary library = new MusicLibrary();
+			library.registerListener(journal);
+			library.add(song("acordar.mp3", "Acordar"));
+			journal.truncate();
+			assertEquals(0, journal.size());
+		}
+		assertEquals(0, LibraryJournal.replay(file, new MusicLibrary()));
+	}
+
+	private void write(long syncIntervalMillis) throws IOException {
+		try(LibraryJournal journal = new LibraryJournal(file, syncIntervalMillis)) {
+			MusicLibrary library = new MusicLibrary();
+			library.registerListener(journal);
+			library.add(song("acordar.mp3", "Acordar"));
+			library.addAll(Arrays.asList(song("serenata.mp3", "Serenata"), song("noites.mp3", "Noites")));
+			library.select(1);
+			library.incRateSelected();
+			library.incRateSelected();
+			library.incTimesPlayed(library.getSelected());
+			library.incTimesPlayed(library.getSelected());
+			library.select(0);
+			library.remove();
+		}
+	}
+
+	private void checkReplay() throws IOException {
+		MusicLibrary library = new MusicLibrary();
+		assertEquals(8, LibraryJournal.replay(file, library));
+		assertEquals(2, library.size());
+		assertFalse(library.contains("acordar.mp3"));
+		ISong serenata = library.find("serenata.mp3").get();
+		assertEquals(2, serenata.getRating().getValue());
+		assertEquals(2, serenata.getTimesPlayed());
+		assertEquals("Serenata", serenata.getSongTitle());
+		assertEquals(Arrays.asList("Vicentuna"), serenata.getArtists());
+	}
+
+	private static ISong song(String filename, String title) {
+		return new Song(new SongMetaInfo(title, Arrays.asList("Vicentuna"), "Fado", "Noites"), filename);
+	}
+}
@@ -0,0 +1,91 @@
+package domain.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.core.SongQuery;
+import domain.facade.ISong;
+import domain.playlists.ManualPlaylist;
+import domain.playlists.Playlist;
+import domain.playlists.PlaylistList;
+import domain.playlists.RuleBasedPlaylist;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the methods of the class LibrarySnapshot.
+ */
+public class LibrarySnapshotTest {
+
+	@Test public void writeAndRead() throws IOException {
+		MusicLibrary library = new MusicLibrary();
+		PlaylistList playlists = new PlaylistList(library);
+		ISong acordar = new Song(new SongMetaInfo("Acordar", Arrays.asList("Vicentuna", "TunaSabes"), "Rock", "Tunagem"), "acordar.mp3");
+		ISong serenata = new Song(new SongMetaInfo("Serenata", Arrays.asList("Vicentuna"), "Fado", null), "serenata.mp3");
+		library.add(acordar);
+		library.add(serenata);
+		library.select(1);
+		library.incRateSelected();
+		library.incRateSelected();
+		library.incTimesPlayed(serenata);
+
+		ManualPlaylist relax = new ManualPlaylist("Relax", library);
+		relax.add(serenata);
+		relax.add(acordar);
+		playlists.add(relax);
+		playlists.add(new RuleBasedPlaylist("Fado", library, SongQuery.parse("genre:Fado AND rating>=1"), RuleBasedPlaylist.Order.RATING, 10));
+
+		Path file = Files.createTempFile("leitunes", ".snapshot");
+		file.toFile().deleteOnExit();
+		LibrarySnapshot.write(file, library, playlists);
+
+		MusicLibrary restoredLibrary = new MusicLibrary();
+		PlaylistList restoredPlaylists = new PlaylistList(restoredLibrary);
+		LibrarySnapshot.read(file, restoredLibrary, restoredPlaylists);
+
+		assertEquals(songs(library.getSongs()), songs(restoredLibrary.getSongs()));
+		ISong restoredSerenata = restoredLibrary.get(1);
+		assertEquals(2, restoredSerenata.getRating().getValue());
+		assertEquals(1, restoredSerenata.getTimesPlayed());
+
+		assertEquals(playlists(playlists), playlists(restoredPlaylists));
+	}
+
+	@Test(expected = IOException.class) public void invalidFile() throws IOException {
+		Path file = Files.write(Files.createTempFile("leitunes", ".snapshot"), new byte[] {1, 2, 3, 4, 5});
+		file.toFile().deleteOnExit();
+		MusicLibrary library = new MusicLibrary();
+		LibrarySnapshot.read(file, library, new PlaylistList(library));
+	}
+
+	private static List<String> songs(Iterable<ISong> songs) {
+		List<String> result = new ArrayList<>();
+		for(ISong song : songs)
+			result.add(song.getFilename() + " " + song);
+		return result;
+	}
+
+	private static List<String> playlists(PlaylistList playlists) {
+		List<String> result = new ArrayList<>();
+		Iterator<Playlist> it = playlists.iterator();
+		while(it.hasNext()) {
+			Playlist playlist = it.next();
+			result.add(playlist.getName() + songs(playlist));
+		}
+		return result;
+	}
+}
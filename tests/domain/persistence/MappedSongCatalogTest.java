@@ -0,0 +1,86 @@
+package domain.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the methods of the classes MappedSongCatalog
+ * and MappedSong.
+ */
+public class MappedSongCatalogTest {
+
+	private MappedSongCatalog catalog;
+
+	@Before public void setUp() throws IOException {
+		ISong acordar = new Song(new SongMetaInfo("Acordar", Arrays.asList("Vicentuna", "TunaSabes"), "Rock", "Tunagem"), "acordar.mp3");
+		ISong serenata = new Song(new SongMetaInfo("Serenata", Arrays.asList("Vicentuna"), "Fado", null), "serenata.mp3");
+		serenata.incRating();
+		serenata.incTimesPlayed();
+
+		Path file = Files.createTempFile("leitunes", ".catalog");
+		file.toFile().deleteOnExit();
+		MappedSongCatalog.write(file, Arrays.asList(acordar, serenata));
+		catalog = MappedSongCatalog.open(file);
+	}
+
+	@Test public void fields() {
+		assertEquals(2, catalog.size());
+		ISong acordar = catalog.get(0);
+		assertEquals("acordar.mp3", acordar.getFilename());
+		assertEquals("Acordar", acordar.getSongTitle());
+		assertEquals("Rock", acordar.getGenre());
+		assertEquals("Tunagem", acordar.getAlbum());
+		assertEquals(Arrays.asList("Vicentuna", "TunaSabes"), acordar.getArtists());
+
+		ISong serenata = catalog.get(1);
+		assertEquals(null, serenata.getAlbum());
+		assertEquals(1, serenata.getRating().getValue());
+		assertEquals(1, serenata.getTimesPlayed());
+	}
+
+	@Test public void changesStayInMemory() {
+		ISong serenata = catalog.get(1);
+		serenata.incRating();
+		serenata.incTimesPlayed();
+		assertEquals(2, serenata.getRating().getValue());
+		assertEquals(2, serenata.getTimesPlayed());
+		assertEquals(1, catalog.get(1).getRating().getValue());
+	}
+
+	@Test public void searchInLibrary() {
+		MusicLibrary library = new MusicLibrary();
+		library.addAll(catalog.songs());
+
+		List<String> titles = new ArrayList<>();
+		for(ISong song : library.getMatches("Vicen.*"))
+			titles.add(song.getSongTitle());
+		assertEquals(Arrays.asList("Acordar", "Serenata"), titles);
+		assertTrue(library.get(0).matches("Tuna[A-Z].*"));
+		assertEquals("serenata.mp3", library.find("serenata.mp3").get().getFilename());
+	}
+
+	@Test(expected = IOException.class) public void invalidFile() throws IOException {
+		Path file = Files.write(Files.createTempFile("leitunes", ".catalog"), new byte[] {1, 2, 3});
+		file.toFile().deleteOnExit();
+		MappedSongCatalog.open(file);
+	}
+}
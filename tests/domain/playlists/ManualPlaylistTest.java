@@ -0,0 +1,110 @@
+package domain.playlists;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests how the class ManualPlaylist keeps its
+ * songs distinct and reacts to removals from the library.
+ */
+public class ManualPlaylistTest {
+
+	private MusicLibrary library;
+	private ManualPlaylist playlist;
+	private List<ISong> songs;
+
+	@Before public void setUp() {
+		library = new MusicLibrary();
+		playlist = new ManualPlaylist("Relax", library);
+		songs = new ArrayList<>();
+		for(int i = 0; i < 6; i++) {
+			ISong song = new Song(new SongMetaInfo("Song " + i, Arrays.asList("Vicentuna"), "Fado", "Noites"), "song" + i + ".mp3");
+			songs.add(song);
+			library.add(song);
+		}
+	}
+
+	@Test public void addSelectsExistingSong() {
+		playlist.add(songs.get(0));
+		playlist.add(songs.get(1));
+		playlist.add(songs.get(2));
+		assertFalse(playlist.add(songs.get(1)));
+		assertEquals(3, playlist.size());
+		assertEquals(1, playlist.getIndexSelected());
+	}
+
+	@Test public void addAfterRemove() {
+		playlist.add(songs.get(0));
+		playlist.add(songs.get(1));
+		playlist.select(0);
+		playlist.remove();
+		assertTrue(playlist.add(songs.get(0)));
+		assertEquals(2, playlist.size());
+	}
+
+	@Test public void removedFromLibrary() {
+		playlist.add(songs.get(3));
+		playlist.add(songs.get(1));
+		playlist.add(songs.get(4));
+
+		library.select(1);
+		library.remove();
+		library.select(0);
+		library.remove();
+		assertEquals(Arrays.asList(songs.get(3), songs.get(4)), contents());
+
+		library.removeAll(song -> song == songs.get(4) || song == songs.get(5));
+		assertEquals(Arrays.asList(songs.get(3)), contents());
+		assertTrue(playlist.add(songs.get(4)));
+	}
+
+	@Test public void removedAfterMovesAndRemovals() {
+		for(ISong song : songs)
+			playlist.add(song);
+
+		playlist.select(4);
+		playlist.moveUpSelected(1);
+		playlist.select(0);
+		playlist.remove();
+		library.removeAll(song -> song == songs.get(2));
+		assertEquals(Arrays.asList(songs.get(4), songs.get(1), songs.get(3), songs.get(5)), contents());
+
+		library.select(library.size() - 1);
+		library.remove();
+		assertEquals(Arrays.asList(songs.get(4), songs.get(1), songs.get(3)), contents());
+		library.select(2);
+		library.remove();
+		assertEquals(Arrays.asList(songs.get(4), songs.get(1)), contents());
+
+		playlist.add(songs.get(0));
+		library.select(2);
+		library.remove();
+		assertEquals(Arrays.asList(songs.get(1), songs.get(0)), contents());
+		assertFalse(playlist.add(songs.get(0)));
+		assertEquals(1, playlist.getIndexSelected());
+	}
+
+	private List<ISong> contents() {
+		List<ISong> contents = new ArrayList<>();
+		for(ISong song : playlist)
+			contents.add(song);
+		return contents;
+	}
+}
@@ -0,0 +1,122 @@
+package domain.playlists;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests how the class MostLikedSongsPlaylist keeps
+ * the best rated songs of the library, by their rating.
+ */
+public class MostLikedSongsPlaylistTest {
+
+	private MusicLibrary library;
+	private MostLikedSongsPlaylist playlist;
+	private List<ISong> songs;
+
+	@Before public void setUp() {
+		library = new MusicLibrary();
+		playlist = new MostLikedSongsPlaylist(library, 3);
+		songs = new ArrayList<>();
+		for(int i = 0; i < 5; i++) {
+			ISong song = new Song(new SongMetaInfo("Song " + i, Arrays.asList("Mariza"), "Fado", "Transparente"), "song" + i + ".mp3");
+			songs.add(song);
+			library.add(song);
+		}
+	}
+
+	@Test public void keepsBestRatedInOrder() {
+		for(int i = 0; i < 5; i++)
+			library.rate(songs.get(i), new Rate(i + 1));
+		assertEquals(Arrays.asList(songs.get(4), songs.get(3), songs.get(2)), contents());
+	}
+
+	@Test public void decreaseLetsNextSongIn() {
+		for(int i = 0; i < 5; i++)
+			library.rate(songs.get(i), new Rate(i + 1));
+		library.rate(songs.get(4), new Rate(0));
+		assertEquals(Arrays.asList(songs.get(3), songs.get(2), songs.get(1)), contents());
+		library.rate(songs.get(3), new Rate(3));
+		assertEquals(Arrays.asList(songs.get(2), songs.get(3), songs.get(1)), contents());
+	}
+
+	@Test public void removalLetsNextSongIn() {
+		for(int i = 0; i < 5; i++)
+			library.rate(songs.get(i), new Rate(i + 1));
+		library.select(4);
+		library.remove();
+		assertEquals(Arrays.asList(songs.get(3), songs.get(2), songs.get(1)), contents());
+		library.removeAll(song -> song == songs.get(3) || song == songs.get(1));
+		assertEquals(Arrays.asList(songs.get(2), songs.get(0)), contents());
+	}
+
+	@Test public void restoreRanksTheWholeLibrary() {
+		for(int i = 0; i < 5; i++)
+			library.rate(songs.get(i), new Rate(i + 1));
+		MostLikedSongsPlaylist restored = new MostLikedSongsPlaylist(library, 3);
+		restored.restore(Arrays.asList(songs.get(4), songs.get(3), songs.get(2)));
+		library.rate(songs.get(4), new Rate(0));
+		assertEquals(Arrays.asList(songs.get(3), songs.get(2), songs.get(1)), contents(restored));
+	}
+
+	@Test public void restoreKeepsStoredOrderOnTies() {
+		for(int i = 0; i < 5; i++)
+			library.rate(songs.get(i), new Rate(5));
+		MostLikedSongsPlaylist restored = new MostLikedSongsPlaylist(library, 3);
+		restored.restore(Arrays.asList(songs.get(3), songs.get(1), songs.get(4)));
+		assertEquals(Arrays.asList(songs.get(3), songs.get(1), songs.get(4)), contents(restored));
+		library.removeAll(song -> song == songs.get(1));
+		assertEquals(Arrays.asList(songs.get(3), songs.get(4), songs.get(0)), contents(restored));
+	}
+
+	@Test public void restoreWhenLibraryOutranksStoredSongs() {
+		for(int i = 0; i < 5; i++)
+			library.rate(songs.get(i), new Rate(5 - i));
+		MostLikedSongsPlaylist restored = new MostLikedSongsPlaylist(library, 2);
+		restored.restore(Arrays.asList(songs.get(3), songs.get(4)));
+		assertEquals(Arrays.asList(songs.get(0), songs.get(1)), contents(restored));
+
+		library.removeAll(song -> song == songs.get(3));
+		library.removeAll(song -> song == songs.get(0));
+		library.removeAll(song -> song == songs.get(1));
+		assertEquals(Arrays.asList(songs.get(2), songs.get(4)), contents(restored));
+		library.removeAll(song -> song == songs.get(2));
+		assertEquals(Arrays.asList(songs.get(4)), contents(restored));
+	}
+
+	@Test public void unratedSongsLeave() {
+		library.rate(songs.get(0), new Rate(4));
+		library.rate(songs.get(1), new Rate(2));
+		library.rate(songs.get(0), new Rate(0));
+		assertEquals(Arrays.asList(songs.get(1)), contents());
+
+		MostLikedSongsPlaylist restored = new MostLikedSongsPlaylist(library, 3);
+		restored.restore(Arrays.asList(songs.get(1), songs.get(0)));
+		assertEquals(Arrays.asList(songs.get(1)), contents(restored));
+	}
+
+	private List<ISong> contents() {
+		return contents(playlist);
+	}
+
+	private static List<ISong> contents(Playlist playlist) {
+		List<ISong> contents = new ArrayList<>();
+		playlist.forEach(contents::add);
+		return contents;
+	}
+}
@@ -0,0 +1,54 @@
+package domain.playlists;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests how the class MostPlayedSongsPlaylist keeps
+ * the most played songs of the library, by their plays.
+ */
+public class MostPlayedSongsPlaylistTest {
+
+	@Test public void followsPlays() {
+		MusicLibrary library = new MusicLibrary();
+		MostPlayedSongsPlaylist playlist = new MostPlayedSongsPlaylist(library, 2);
+
+		List<ISong> songs = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			ISong song = new Song(new SongMetaInfo("Song " + i, Arrays.asList("Ana Moura"), "Fado", "Moura"), "song" + i + ".mp3");
+			songs.add(song);
+			library.add(song);
+		}
+
+		library.incTimesPlayed(songs.get(0));
+		library.incTimesPlayed(songs.get(1));
+		library.incTimesPlayed(songs.get(1));
+		assertEquals(Arrays.asList(songs.get(1), songs.get(0)), contents(playlist));
+
+		library.setTimesPlayed(songs.get(2), 5);
+		assertEquals(Arrays.asList(songs.get(2), songs.get(1)), contents(playlist));
+
+		library.removeAll(song -> song == songs.get(2));
+		assertEquals(Arrays.asList(songs.get(1), songs.get(0)), contents(playlist));
+	}
+
+	private static List<ISong> contents(Playlist playlist) {
+		List<ISong> contents = new ArrayList<>();
+		playlist.forEach(contents::add);
+		return contents;
+	}
+}
@@ -0,0 +1,51 @@
+package domain.playlists;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests how the class MostRecentlyAddedSongsPlaylist
+ * keeps the last songs added to the library.
+ */
+public class MostRecentlyAddedSongsPlaylistTest {
+
+	@Test public void keepsLastAddedSongs() {
+		MusicLibrary library = new MusicLibrary();
+		MostRecentlyAddedSongsPlaylist playlist = new MostRecentlyAddedSongsPlaylist(library, 3);
+
+		List<ISong> songs = new ArrayList<>();
+		for(int i = 0; i < 10; i++)
+			songs.add(new Song(new SongMetaInfo("Song " + i, Arrays.asList("Carminho"), "Fado", "Maria"), "song" + i + ".mp3"));
+
+		for(ISong song : songs.subList(0, 5))
+			library.add(song);
+		assertEquals(songs.subList(2, 5), contents(playlist));
+
+		library.addAll(songs.subList(5, 10));
+		assertEquals(songs.subList(7, 10), contents(playlist));
+
+		library.removeAll(song -> song == songs.get(8));
+		library.add(songs.get(8));
+		assertEquals(Arrays.asList(songs.get(7), songs.get(9), songs.get(8)), contents(playlist));
+	}
+
+	private static List<ISong> contents(Playlist playlist) {
+		List<ISong> contents = new ArrayList<>();
+		playlist.forEach(contents::add);
+		return contents;
+	}
+}
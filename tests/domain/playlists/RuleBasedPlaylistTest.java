@@ -0,0 +1,80 @@
+package domain.playlists;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.core.SongQuery;
+import domain.facade.ISong;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests how the class RuleBasedPlaylist keeps the
+ * songs of the library that satisfy its rule.
+ */
+public class RuleBasedPlaylistTest {
+
+	private MusicLibrary library;
+	private List<ISong> songs;
+
+	@Before public void setUp() {
+		library = new MusicLibrary();
+		songs = new ArrayList<>();
+		for(int i = 0; i < 6; i++) {
+			String genre = i % 2 == 0 ? "Jazz" : "Fado";
+			ISong song = new Song(new SongMetaInfo("Song " + i, Arrays.asList("Camane"), genre, "Sempre"), "song" + i + ".mp3");
+			songs.add(song);
+			library.add(song);
+			library.rate(song, new Rate(i + 3));
+		}
+	}
+
+	@Test public void startsWithMatchingSongs() {
+		RuleBasedPlaylist playlist = new RuleBasedPlaylist("Jazz", library, SongQuery.parse("genre:Jazz AND rating>=5"), RuleBasedPlaylist.Order.RATING, 10);
+		assertEquals(Arrays.asList(songs.get(4), songs.get(2)), contents(playlist));
+	}
+
+	@Test public void followsLibraryChanges() {
+		RuleBasedPlaylist playlist = new RuleBasedPlaylist("Jazz", library, SongQuery.parse("genre:Jazz AND rating>=5"), RuleBasedPlaylist.Order.RATING, 2);
+
+		ISong added = new Song(new SongMetaInfo("Novo", Arrays.asList("Camane"), "Jazz", "Sempre"), "novo.mp3");
+		added.incRating();
+		library.add(added);
+		assertEquals(Arrays.asList(songs.get(4), songs.get(2)), contents(playlist));
+
+		library.rate(added, new Rate(10));
+		assertEquals(Arrays.asList(added, songs.get(4)), contents(playlist));
+
+		library.rate(songs.get(4), new Rate(1));
+		assertEquals(Arrays.asList(added, songs.get(2)), contents(playlist));
+
+		library.removeAll(song -> song == added);
+		assertEquals(Arrays.asList(songs.get(2)), contents(playlist));
+	}
+
+	@Test public void sortedByPlays() {
+		for(int i = 0; i < 6; i++)
+			for(int j = 0; j < 6 - i; j++)
+				songs.get(i).incTimesPlayed();
+		RuleBasedPlaylist playlist = new RuleBasedPlaylist("Fado", library, SongQuery.parse("genre:Fado"), RuleBasedPlaylist.Order.PLAYED, 10);
+		assertEquals(Arrays.asList(songs.get(1), songs.get(3), songs.get(5)), contents(playlist));
+	}
+
+	private static List<ISong> contents(Playlist playlist) {
+		List<ISong> contents = new ArrayList<>();
+		playlist.forEach(contents::add);
+		return contents;
+	}
+}
@@ -177,5 +177,30 @@ public class ArrayQListwithSelectionTest {
 		list.select(2);
 		assertTrue(list.getSelected() == 234);
 	}
+	
+	@Test public void moveSelectedUp() {
+		ArrayQListWithSelection<Integer> list = new ArrayQListWithSelection<>();
+		for(int i = 0; i < 5; i++)
+			list.add(i);
+		list.select(3);
+		list.moveSelected(1);
+		assertTrue(list.getIndexSelected() == 1);
+		assertTrue(list.getSelected() == 3);
+		int[] expected = {0, 3, 1, 2, 4};
+		for(int i = 0; i < expected.length; i++)
+			assertTrue(list.get(i) == expected[i]);
+	}
+	
+	@Test public void moveSelectedDown() {
+		ArrayQListWithSelection<Integer> list = new ArrayQListWithSelection<>();
+		for(int i = 0; i < 5; i++)
+			list.add(i);
+		list.select(0);
+		list.moveSelected(3);
+		assertTrue(list.getSelected() == 0);
+		int[] expected = {1, 2, 3, 0, 4};
+		for(int i = 0; i < expected.length; i++)
+			assertTrue(list.get(i) == expected[i]);
+	}
 }
 
@@ -0,0 +1,78 @@
+package util.adts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the methods of the classes RingBufferList
+ * and RingBufferQListWithSelection.
+ */
+public class RingBufferListTest {
+
+	@Test public void removeFirstWrapsAround() {
+		RingBufferList<Integer> list = new RingBufferList<>(3);
+		for(int i = 0; i < 10; i++) {
+			if(list.isFull())
+				assertEquals(Integer.valueOf(i - 3), list.remove(0));
+			list.add(i);
+		}
+		assertEquals(List.of(7, 8, 9), list);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void addToFullList() {
+		RingBufferList<Integer> list = new RingBufferList<>(1);
+		list.add(1);
+		list.add(2);
+	}
+
+	@Test public void behavesAsArrayList() {
+
+		Random random = new Random(20);
+		RingBufferList<Integer> list = new RingBufferList<>(64);
+		List<Integer> expected = new ArrayList<>();
+
+		for(int i = 0; i < 20000; i++) {
+			int operation = random.nextInt(4);
+			if(expected.isEmpty() || (operation == 0 && expected.size() < 64)) {
+				int index = random.nextInt(expected.size() + 1);
+				list.add(index, i);
+				expected.add(index, i);
+			}
+			else if(operation == 1) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), list.remove(index));
+			}
+			else if(operation == 2) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.set(index, i), list.set(index, i));
+			}
+			else if(expected.size() < 64) {
+				list.add(i);
+				expected.add(i);
+			}
+		}
+
+		assertEquals(expected, list);
+	}
+
+	@Test public void selectionListKeepsMostRecent() {
+		RingBufferQListWithSelection<Integer> list = new RingBufferQListWithSelection<>(2);
+		list.add(1);
+		list.add(2);
+		list.add(3);
+		assertTrue(list.size() == 2);
+		assertTrue(list.get(0) == 2);
+		assertTrue(list.getSelected() == 3);
+	}
+}
@@ -0,0 +1,103 @@
+package util.adts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the methods that the classes
+ * TombstoneQListWithSelection and TombstoneList use.
+ */
+public class TombstoneQListWithSelectionTest {
+
+	@Test public void listSize() {
+		TombstoneQListWithSelection<Integer> list = new TombstoneQListWithSelection<>();
+		list.add(232);
+		list.add(233);
+		list.add(539);
+		list.remove();
+		assertTrue(list.size() == 2);
+	}
+
+	@Test public void getAfterRemoval() {
+		TombstoneQListWithSelection<Integer> list = new TombstoneQListWithSelection<>();
+		list.add(232);
+		list.add(233);
+		list.add(234);
+		list.select(1);
+		list.remove();
+		assertTrue(list.get(0) == 232 && list.get(1) == 234);
+		assertFalse(list.someSelected());
+	}
+
+	@Test public void nextAndPreviousAfterRemoval() {
+		TombstoneQListWithSelection<Integer> list = new TombstoneQListWithSelection<>();
+		for(int i = 0; i < 5; i++)
+			list.add(i);
+		list.select(2);
+		list.remove();
+		list.select(1);
+		list.next();
+		assertTrue(list.getSelected() == 3);
+		list.previous();
+		list.previous();
+		assertTrue(list.getSelected() == 0);
+	}
+
+	@Test public void iteratorSkipsRemoved() {
+		TombstoneQListWithSelection<Integer> list = new TombstoneQListWithSelection<>();
+		for(int i = 0; i < 4; i++)
+			list.add(i);
+		list.select(0);
+		list.remove();
+		list.select(1);
+		list.remove();
+
+		List<Integer> elements = new ArrayList<>();
+		for(int e : list)
+			elements.add(e);
+		assertEquals(List.of(1, 3), elements);
+	}
+
+	@Test public void removeIf() {
+		TombstoneList<Integer> list = new TombstoneList<>();
+		for(int i = 0; i < 100; i++)
+			list.add(i);
+		list.removeIf(e -> e % 3 != 0);
+		assertTrue(list.size() == 34 && list.get(33) == 99);
+	}
+
+	@Test public void sameAsArrayList() {
+		Random random = new Random(58182);
+		TombstoneList<Integer> list = new TombstoneList<>();
+		List<Integer> expected = new ArrayList<>();
+
+		for(int i = 0; i < 5000; i++) {
+			if(expected.isEmpty() || random.nextInt(3) > 0) {
+				list.add(i);
+				expected.add(i);
+			}
+			else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), list.remove(index));
+			}
+		}
+
+		while(expected.size() > 10) {
+			int index = random.nextInt(expected.size());
+			assertEquals(expected.remove(index), list.remove(index));
+		}
+
+		assertEquals(expected, list);
+	}
+}
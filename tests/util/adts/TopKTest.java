@@ -0,0 +1,83 @@
+package util.adts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests how the class TopK keeps the elements
+ * with the highest scores while the scores change.
+ */
+public class TopKTest {
+
+	@Test public void keepsHighestScores() {
+		TopK<String> ranking = new TopK<>(2);
+		assertNull(ranking.add("a", 1));
+		assertNull(ranking.add("b", 3));
+		assertEquals("a", ranking.add("c", 2));
+		assertEquals(Arrays.asList("b", "c"), ranking.top());
+		assertFalse(ranking.contains("a"));
+		assertTrue(ranking.isRanked("a"));
+	}
+
+	@Test public void tiesKeepArrivalOrder() {
+		TopK<String> ranking = new TopK<>(2);
+		ranking.add("a", 1);
+		ranking.add("b", 1);
+		assertNull(ranking.add("c", 1));
+		assertEquals(Arrays.asList("a", "b"), ranking.top());
+	}
+
+	@Test public void removalPromotesNext() {
+		TopK<String> ranking = new TopK<>(2);
+		ranking.add("a", 5);
+		ranking.add("b", 4);
+		ranking.add("c", 3);
+		assertEquals("c", ranking.remove("a"));
+		assertEquals(Arrays.asList("b", "c"), ranking.top());
+		assertNull(ranking.remove("missing"));
+	}
+
+	@Test public void randomScoreChanges() {
+
+		Random random = new Random(19);
+		TopK<Integer> ranking = new TopK<>(10);
+		Map<Integer, Integer> scores = new HashMap<>();
+		Map<Integer, Long> order = new HashMap<>();
+
+		for(long step = 0; step < 20000; step++) {
+			int element = random.nextInt(100);
+			if(random.nextInt(10) == 0) {
+				ranking.remove(element);
+				scores.remove(element);
+				order.remove(element);
+			}
+			else {
+				int score = random.nextInt(11);
+				ranking.remove(element);
+				ranking.add(element, score);
+				scores.put(element, score);
+				order.put(element, step);
+			}
+		}
+
+		List<Integer> expected = new ArrayList<>(scores.keySet());
+		expected.sort(Comparator.<Integer>comparingInt(scores::get).reversed().thenComparing(order::get));
+		assertEquals(expected.subList(0, Math.min(10, expected.size())), ranking.top());
+	}
+}
@@ -0,0 +1,194 @@
+package util.observer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Gabriel Henriques fc58182
+ * @author Guilherme Sousa fc58170
+ *
+ * A class that tests the synchronous and asynchronous delivery
+ * of events of the class AbsSubject.
+ */
+public class AbsSubjectTest {
+
+	@Test public void deliversInOrderOnDispatcher() {
+		NumberSubject subject = new NumberSubject();
+		List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+		subject.registerListener(e -> {
+			received.add(e.value);
+			threads.add(Thread.currentThread());
+		});
+
+		subject.setAsynchronous(true);
+		List<Integer> expected = new ArrayList<>();
+		for(int i = 0; i < 10000; i++) {
+			subject.emitEvent(new NumberEvent(i));
+			expected.add(i);
+		}
+		subject.flush();
+
+		assertEquals(expected, received);
+		assertFalse(threads.contains(Thread.currentThread()));
+		subject.setAsynchronous(false);
+		assertFalse(subject.isAsynchronous());
+	}
+
+	@Test public void synchronousListenersGetEventsAtOnce() {
+		NumberSubject subject = new NumberSubject();
+		List<Integer> received = new ArrayList<>();
+		subject.registerSynchronousListener(e -> received.add(e.value));
+		subject.setAsynchronous(true);
+		subject.emitEvent(new NumberEvent(1));
+		assertEquals(List.of(1), received);
+		subject.setAsynchronous(false);
+	}
+
+	@Test public void failedListenerGoesToHandler() {
+		NumberSubject subject = new NumberSubject();
+		List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+		subject.registerListener(e -> {
+			throw new IllegalStateException("fails " + e.value);
+		});
+		subject.registerListener(e -> received.add(e.value));
+
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler((thread, ex) -> failures.add(ex));
+		try {
+			subject.setAsynchronous(true);
+			subject.emitEvent(new NumberEvent(1));
+			subject.emitEvent(new NumberEvent(2));
+			subject.flush();
+			subject.setAsynchronous(false);
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+
+		assertEquals(List.of(1, 2), received);
+		assertEquals(2, failures.size());
+		assertEquals("fails 1", failures.get(0).getMessage());
+	}
+
+	@Test public void coalescesRedundantEvents() throws InterruptedException {
+		NumberSubject subject = new NumberSubject();
+		List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+		Object gate = new Object();
+		subject.registerListener(e -> {
+			//hold the dispatcher on the first event so that the others queue up
+			if(e.value == 0)
+				synchronized(gate) {
+					received.add(e.value);
+				}
+			else
+				received.add(e.value);
+		});
+
+		subject.setAsynchronous(true);
+		synchronized(gate) {
+			subject.emitEvent(new NumberEvent(0));
+			Thread.sleep(50);
+			subject.emitEvent(new NumberEvent(7));
+			subject.emitEvent(new NumberEvent(7));
+			subject.emitEvent(new NumberEvent(7));
+			subject.emitEvent(new NumberEvent(8));
+		}
+		subject.flush();
+		subject.setAsynchronous(false);
+
+		assertEquals(List.of(0, 7, 8), received);
+	}
+
+	@Test public void synchronousByDefault() {
+		NumberSubject subject = new NumberSubject();
+		List<Integer> received = new ArrayList<>();
+		subject.registerListener(e -> received.add(e.value));
+		subject.emitEvent(new NumberEvent(3));
+		subject.flush();
+		assertTrue(received.contains(3));
+	}
+
+	@Test public void routesByTypeAndKey() {
+		NumberSubject subject = new NumberSubject();
+		List<Integer> odd = new ArrayList<>();
+		List<Integer> sevens = new ArrayList<>();
+		Listener<NumberEvent> oddListener = e -> odd.add(e.value);
+		subject.registerListener(OddEvent.class, oddListener);
+		subject.registerListener(OddEvent.class, oddListener);
+		subject.registerListener(NumberEvent.class, 7, e -> sevens.add(e.value));
+
+		for(int i = 0; i < 10; i++)
+			subject.emitEvent(i % 2 == 0 ? new NumberEvent(i) : new OddEvent(i));
+		subject.emitEvent(new OddEvent(7));
+
+		assertEquals(List.of(1, 3, 5, 7, 9, 7), odd);
+		assertEquals(List.of(7, 7), sevens);
+
+		subject.unregisterListener(oddListener);
+		subject.emitEvent(new OddEvent(11));
+		assertEquals(6, odd.size());
+	}
+
+	@Test public void routesBatchOncePerListener() {
+		NumberSubject subject = new NumberSubject();
+		List<Integer> received = new ArrayList<>();
+		Listener<NumberEvent> listener = e -> received.add(e.value);
+		subject.registerListener(NumberEvent.class, 7, listener);
+		subject.registerListener(NumberEvent.class, 8, listener);
+
+		subject.emitEvent(new NumbersEvent(List.of(1, 7, 8)));
+		subject.emitEvent(new NumbersEvent(List.of(2, 3)));
+		subject.emitEvent(new NumbersEvent(List.of(4, 8)));
+
+		assertEquals(List.of(1, 4), received);
+	}
+
+	private static class NumberEvent implements Event {
+
+		private final int value;
+
+		private NumberEvent(int value) {
+			this.value = value;
+		}
+	}
+
+	private static final class OddEvent extends NumberEvent {
+
+		private OddEvent(int value) {
+			super(value);
+		}
+	}
+
+	private static final class NumbersEvent extends NumberEvent {
+
+		private final List<Integer> values;
+
+		private NumbersEvent(List<Integer> values) {
+			super(values.get(0));
+			this.values = values;
+		}
+	}
+
+	private static final class NumberSubject extends AbsSubject<NumberEvent> {
+
+		@Override
+		protected boolean coalesces(NumberEvent previous, NumberEvent next) {
+			return previous.value == next.value;
+		}
+
+		@Override
+		protected Collection<?> keysOf(NumberEvent e) {
+			return e instanceof NumbersEvent ? ((NumbersEvent) e).values : List.of(e.value);
+		}
+	}
+}